@@ -0,0 +1,93 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Small JMH like measurement loop. </br>
+ * Every benchmark runs a number of discarded warmup iterations followed by measured iterations,
+ * each iteration repeating the operation until the iteration time is used up. 
+ * Operation results are kept in a volatile sink so the JIT can not remove the measured work.
+ */
+public class BenchmarkHarness {
+
+	private final int warmupIterations;
+	private final int measurementIterations;
+	private final long iterationNanos;
+	//
+	private final List<BenchmarkResult> results = new ArrayList<>();
+	@SuppressWarnings("unused")
+	private volatile Object sink;
+
+	public BenchmarkHarness(int warmupIterations, int measurementIterations, long iterationMillis) {
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+		this.iterationNanos = iterationMillis*1_000_000L;
+	}
+
+	public BenchmarkResult measure(String benchmark, String instance, String parameter, Supplier<?> operation) {
+		for(int i=0; i<warmupIterations; i++) {
+			iteration(operation);
+		}
+		
+		double[] scores = new double[measurementIterations];
+		long operations = 0;
+		for(int i=0; i<measurementIterations; i++) {
+			long[] measured = iteration(operation);
+			operations+=measured[1];
+			scores[i] = measured[0]*1e-3/measured[1];
+		}
+		
+		double mean = 0;
+		for(double score:scores)
+			mean+=score;
+		mean/=scores.length;
+		double deviation = 0;
+		for(double score:scores)
+			deviation+=(score-mean)*(score-mean);
+		deviation = Math.sqrt(deviation/scores.length);
+		
+		BenchmarkResult result = new BenchmarkResult(benchmark, instance, parameter, measurementIterations, operations, mean, deviation);
+		results.add(result);
+		return result;
+	}
+	
+	public List<BenchmarkResult> getResults() {
+		return results;
+	}
+	
+	/**
+	 * Writes all results as a JSON array.
+	 */
+	public void writeJson(Path file) throws IOException {
+		StringBuilder stringBuilder = new StringBuilder("[\n");
+		for(int i=0,size=results.size(); i<size; i++) {
+			stringBuilder.append("  ").append(results.get(i).toJson());
+			stringBuilder.append(i==size-1 ? "\n" : ",\n");
+		}
+		stringBuilder.append("]\n");
+		
+		if(file.getParent()!=null)
+			Files.createDirectories(file.getParent());
+		Files.write(file, stringBuilder.toString().getBytes());
+	}
+
+	/**
+	 * Returns {elapsed nanoseconds, operation count}
+	 */
+	private long[] iteration(Supplier<?> operation) {
+		long operations = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			sink = operation.get();
+			operations++;
+			elapsed = System.nanoTime()-start;
+		}while(elapsed<iterationNanos);
+		return new long[] {elapsed, operations};
+	}
+}
@@ -0,0 +1,44 @@
+package benchmark;
+
+import java.util.Locale;
+
+/**
+ * Average time per operation of a single benchmark, over all measurement iterations.
+ */
+public final class BenchmarkResult {
+
+	public final String benchmark;
+	public final String instance;
+	public final String parameter;
+	public final int iterations;
+	public final long operations;
+	/** Mean time per operation in microseconds */
+	public final double score;
+	/** Standard deviation of the per iteration scores in microseconds */
+	public final double error;
+
+	public BenchmarkResult(String benchmark, String instance, String parameter, int iterations, long operations,
+			double score, double error) {
+		this.benchmark = benchmark;
+		this.instance = instance;
+		this.parameter = parameter;
+		this.iterations = iterations;
+		this.operations = operations;
+		this.score = score;
+		this.error = error;
+	}
+
+	public String toJson() {
+		return String.format(Locale.ROOT, 
+				"{\"benchmark\":\"%s\",\"instance\":\"%s\",\"parameter\":\"%s\",\"mode\":\"avgt\",\"unit\":\"us/op\","
+				+ "\"iterations\":%d,\"operations\":%d,\"score\":%.4f,\"error\":%.4f}",
+				benchmark, instance, parameter, Integer.valueOf(iterations), Long.valueOf(operations), 
+				Double.valueOf(score), Double.valueOf(error));
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "%-52s %-12s %-12s %14.3f +- %10.3f us/op", 
+				benchmark, instance, parameter, Double.valueOf(score), Double.valueOf(error));
+	}
+}
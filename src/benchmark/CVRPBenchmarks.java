@@ -0,0 +1,285 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import common.DistanceMatrix;
+import common.FlatSolution;
+import common.InstanceReader;
+import common.DistanceMatrix.Precision;
+import common.DistanceMatrix.Storage;
+import common.RouteOptimizer;
+import common.RouteRepair;
+import common.StartSolution;
+import common.construction.Construction;
+import common.neighborhood.CandidateMove;
+import common.neighborhood.MoveEvaluator;
+import heuristic.popvnd.neighborAcceptanceTest.BetterThanBestInPopulation;
+import heuristic.popvnd.neighborAcceptanceTest.NeighborAcceptanceTest;
+import heuristic.popvnd.neighborhood.ChangeStationRoute_V2;
+import heuristic.popvnd.neighborhood.INeighborhood_V2;
+import heuristic.popvnd.neighborhood.MergeRoutes_V2;
+import heuristic.popvnd.neighborhood.SwapStations_V2;
+import heuristic.popvnd.neighborhoodMaintenance.BestMMaintenance;
+import heuristic.popvnd.neighborhoodMaintenance.NeighborhoodMaintenance;
+import heuristic.popvnd.populationSelection.IPopulationSelection_V2;
+import heuristic.routing.DemandRoute;
+import heuristic.routing.RoutingUtility;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+import heuristic.routing.cvrp.ICVRPSolutionGenerator;
+import heuristic.routing.cvrp.algorithm.ClarkeWrightSolutionGenerator;
+import main.Algorithm;
+import main.RunConfiguration;
+import main.Solvers;
+import main.Type;
+
+/**
+ * Benchmarks of the CVRP hot paths over the instances in data/. </br>
+ * Instance names can be given as arguments, otherwise all instances are used. 
+ * Results are printed and written as JSON to output/benchmark/ so they can be compared between builds.
+ */
+public class CVRPBenchmarks {
+	
+	private static final int WARMUP_ITERATIONS = 3;
+	private static final int MEASUREMENT_ITERATIONS = 5;
+	private static final long ITERATION_MILLIS = 500;
+	private static final int[] ROUTE_SIZES = new int[] {5,10,20,40};
+	private static final int POPULATION_SIZE = 3;
+	private static final int CANDIDATE_LIST_SIZE = 10;
+	private static final long SEED = 42;
+
+	public static void main(String[] args) throws IOException {
+		List<String> instances = args.length>0 ? Arrays.asList(args) : 
+			Files.list(Paths.get("data/")).map(p -> p.toFile().getName())
+				.filter(n -> n.endsWith(".vrp")).map(n -> n.replace(".vrp", "")).sorted().collect(Collectors.toList());
+		
+		BenchmarkHarness harness = new BenchmarkHarness(WARMUP_ITERATIONS, MEASUREMENT_ITERATIONS, ITERATION_MILLIS);
+		for(String name:instances) {
+			runInstance(harness, name);
+		}
+		
+		String outFileName = "output/benchmark/benchmark_"+new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date())+".json";
+		harness.writeJson(Paths.get(outFileName));
+		System.out.println("Results written to "+outFileName);
+	}
+
+	private static void runInstance(BenchmarkHarness harness, String name) throws IOException {
+		String inFileName = "data/"+name+".vrp";
+		CVRPDescription description = CVRPDescription.getDescription(inFileName);
+		
+		//Instance loading
+		report(harness.measure("CVRPDescription.getDescription", name, "-", () -> {
+			try {
+				return CVRPDescription.getDescription(inFileName);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}));
+		report(harness.measure("InstanceReader.read", name, "vrp", () -> {
+			try {
+				return InstanceReader.read(Paths.get(inFileName));
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}));
+		Path binaryDirectory = Files.createTempDirectory("instances");
+		InstanceReader.read(Paths.get(inFileName), binaryDirectory);
+		Path binaryFile = InstanceReader.getBinaryFile(Paths.get(inFileName), binaryDirectory);
+		report(harness.measure("InstanceReader.readBinary", name, "bin", () -> {
+			try {
+				return InstanceReader.readBinary(binaryFile);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}));
+		report(harness.measure("InstanceReader.mapDistances", name, "bin", () -> {
+			try {
+				return InstanceReader.mapDistances(binaryFile);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}));
+		Files.delete(binaryFile);
+		Files.delete(binaryDirectory);
+		
+		//Route optimization
+		Random random = new Random(SEED);
+		for(int routeSize:ROUTE_SIZES) {
+			if(routeSize>=description.dimension)
+				continue;
+			int[] stations = randomStations(random, description.dimension, routeSize);
+			int[] buffer = new int[routeSize];
+			report(harness.measure("RouteOptimizer.optimize", name, "size="+routeSize, () -> {
+				System.arraycopy(stations, 0, buffer, 0, routeSize);
+				return Double.valueOf(RouteOptimizer.optimize(description.distance, buffer, routeSize));
+			}));
+			//repair of a solved route after a swap: one station spliced out, one appended
+			int[] solved = Arrays.copyOf(stations, routeSize);
+			RouteOptimizer.optimize(description.distance, solved, routeSize);
+			report(harness.measure("RouteRepair.repair", name, "size="+routeSize, () -> {
+				System.arraycopy(solved, 1, buffer, 0, routeSize-1);
+				buffer[routeSize-1] = solved[0];
+				return Double.valueOf(RouteRepair.repair(description.distance, buffer, routeSize, 1));
+			}));
+		}
+		
+		//Distance lookups of a route length over the different matrix layouts
+		int[] tour = randomStations(random, description.dimension, description.dimension-1);
+		report(harness.measure("RoutingUtility.calculateImplicitLoopLength", name, "double[][]", 
+				() -> Double.valueOf(RoutingUtility.calculateImplicitLoopLength(tour, tour.length, description.distance))));
+		for(Storage storage:Storage.values()) {
+			for(Precision precision:Precision.values()) {
+				DistanceMatrix matrix = DistanceMatrix.of(description.distance, precision, storage);
+				report(harness.measure("DistanceMatrix.implicitLoopLength", name, storage+" "+precision, 
+						() -> Double.valueOf(matrix.implicitLoopLength(tour, tour.length))));
+			}
+		}
+		
+		//Start solution construction
+		report(harness.measure("ClarkeWrightSolutionGenerator.generateImplicitRoutes", name, "-", 
+				() -> new ClarkeWrightSolutionGenerator().generateImplicitRoutes(description)));
+		for(Construction construction:Construction.values()) {
+			ICVRPSolutionGenerator generator = construction.getGenerator();
+			report(harness.measure("Construction.generateImplicitRoutes", name, construction.toString(), 
+					() -> generator.generateImplicitRoutes(description)));
+		}
+		
+		//Solution cloning
+		DemandRoutesSolution start = StartSolution.getInitialSolution(description);
+		DemandRoutesSolution constructed = StartSolution.getInitialSolution(description, Construction.SAVINGS);
+		report(harness.measure("DemandRoutesSolution.clone", name, "routes="+start.routes.size(), () -> start.clone()));
+		report(harness.measure("DemandRoutesSolution.clone", name, "routes="+constructed.routes.size(), () -> constructed.clone()));
+		DemandRoutesSolution copyTarget = constructed.clone();
+		report(harness.measure("DemandRoutesSolution.copy", name, "routes="+constructed.routes.size(), () -> {
+			copyTarget.copy(constructed);
+			return copyTarget;
+		}));
+		MoveEvaluator evaluator = new MoveEvaluator(description.dimension);
+		evaluator.relocate(constructed, 0, 0, constructed.routes.size()-1);
+		CandidateMove move = evaluator.snapshot();
+		report(harness.measure("CandidateMove.apply", name, "routes="+constructed.routes.size(), () -> move.apply(constructed)));
+		FlatSolution flat = FlatSolution.of(constructed);
+		report(harness.measure("FlatSolution.clone", name, "routes="+flat.getRouteCount(), () -> flat.clone()));
+		FlatSolution flatTarget = flat.clone();
+		report(harness.measure("FlatSolution.copy", name, "routes="+flat.getRouteCount(), () -> {
+			flatTarget.copy(flat);
+			return flatTarget;
+		}));
+		
+		//Capacity scan of all station swaps (the inner loop of the swap neighborhood)
+		report(harness.measure("DemandRoutesSolution.swapCapacityScan", name, "routes="+constructed.routes.size(), 
+				() -> swapCapacityScan(constructed, description)));
+		report(harness.measure("FlatSolution.swapCapacityScan", name, "routes="+flat.getRouteCount(), 
+				() -> swapCapacityScan(flat, description)));
+		
+		//One pass of each POP-VND neighborhood over a constructed solution
+		DemandRoutesSolution[] population = new DemandRoutesSolution[POPULATION_SIZE];
+		population[0] = constructed;
+		NeighborAcceptanceTest<DemandRoutesSolution> acceptanceTest = new BetterThanBestInPopulation<>(Solvers.COMPARATOR);
+		NeighborhoodMaintenance<DemandRoutesSolution> maintenance = new BestMMaintenance<>(POPULATION_SIZE, Solvers.COMPARATOR);
+		List<INeighborhood_V2<DemandRoutesSolution>> libraryNeighborhoods = Arrays.asList(
+				new MergeRoutes_V2(description, acceptanceTest, maintenance),
+				new ChangeStationRoute_V2(description, acceptanceTest, maintenance),
+				new SwapStations_V2(description, acceptanceTest, maintenance));
+		RunConfiguration bestRun = new RunConfiguration(Algorithm.POP_VND, Type.BEST, false, POPULATION_SIZE, 1, 0, name);
+		List<INeighborhood_V2<DemandRoutesSolution>> neighborhoods = new ArrayList<>(libraryNeighborhoods);
+		neighborhoods.addAll(Solvers.getNeighborhoods_V2(description, bestRun, null));
+		for(INeighborhood_V2<DemandRoutesSolution> neighborhood:neighborhoods) {
+			report(harness.measure(neighborhood.getClass().getSimpleName()+".neighborhood", name, "routes="+constructed.routes.size(), 
+					() -> neighborhood.neighborhood(population, 0)));
+		}
+		RunConfiguration granularRun = bestRun.withCandidateLists(CANDIDATE_LIST_SIZE, true);
+		for(INeighborhood_V2<DemandRoutesSolution> neighborhood:Solvers.getNeighborhoods_V2(description, granularRun, null)) {
+			report(harness.measure(neighborhood.getClass().getSimpleName()+".neighborhood", name, 
+					"routes="+constructed.routes.size()+" k="+CANDIDATE_LIST_SIZE, 
+					() -> neighborhood.neighborhood(population, 0)));
+		}
+		
+		//One POP-VND iteration (first neighborhood over the start population and selection) per type
+		for(Type type:Type.values()) {
+			RunConfiguration run = new RunConfiguration(Algorithm.POP_VND, type, false, POPULATION_SIZE, 1, 0, name);
+			List<INeighborhood_V2<DemandRoutesSolution>> runNeighborhoods = Solvers.getNeighborhoods_V2(description, run, null);
+			IPopulationSelection_V2<DemandRoutesSolution> populationSelection = Solvers.getPopulationSelection(type);
+			DemandRoutesSolution[] startPopulation = new DemandRoutesSolution[POPULATION_SIZE];
+			startPopulation[0] = start;
+			DemandRoutesSolution[] nextPopulation = new DemandRoutesSolution[POPULATION_SIZE];
+			report(harness.measure("ImmuneSystemVariableNeighborhoodDescent_V2.iteration", name, "type="+type, () -> {
+				List<DemandRoutesSolution> neighbors = new ArrayList<>();
+				for(int i=0; i<startPopulation.length; i++) {
+					if(startPopulation[i]!=null)
+						neighbors.addAll(runNeighborhoods.get(0).neighborhood(startPopulation, i));
+				}
+				populationSelection.select(startPopulation, nextPopulation, neighbors);
+				return nextPopulation[0];
+			}));
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static int swapCapacityScan(DemandRoutesSolution solution, CVRPDescription description) {
+		int feasible = 0;
+		int[] demands = description.demand;
+		for(int cr=0; cr<solution.routes.size(); cr++) {
+			DemandRoute route1 = solution.get(cr);
+			for(int nr=cr+1; nr<solution.routes.size(); nr++) {
+				DemandRoute route2 = solution.get(nr);
+				for(int cs=0; cs<route1.size(); cs++) {
+					for(int ns=0; ns<route2.size(); ns++) {
+						int change = demands[route2.get(ns)]-demands[route1.get(cs)];
+						if(route1.getDemand()+change<=description.capacity && route2.getDemand()-change<=description.capacity)
+							feasible++;
+					}
+				}
+			}
+		}
+		return feasible;
+	}
+
+	private static int swapCapacityScan(FlatSolution solution, CVRPDescription description) {
+		int feasible = 0;
+		int[] demands = description.demand;
+		int[] tour = solution.getTour();
+		int routeCount = solution.getRouteCount();
+		for(int cr=0; cr<routeCount; cr++) {
+			int cEnd = solution.getOffset(cr+1);
+			for(int nr=cr+1; nr<routeCount; nr++) {
+				int nEnd = solution.getOffset(nr+1);
+				for(int cs=solution.getOffset(cr); cs<cEnd; cs++) {
+					for(int ns=solution.getOffset(nr); ns<nEnd; ns++) {
+						int change = demands[tour[ns]]-demands[tour[cs]];
+						if(solution.getRouteDemand(cr)+change<=description.capacity && solution.getRouteDemand(nr)-change<=description.capacity)
+							feasible++;
+					}
+				}
+			}
+		}
+		return feasible;
+	}
+
+	private static int[] randomStations(Random random, int dimension, int size) {
+		int[] stations = new int[dimension-1];
+		for(int i=0; i<stations.length; i++)
+			stations[i] = i+1;
+		for(int i=stations.length-1; i>0; i--) {
+			int j = random.nextInt(i+1);
+			int help = stations[i];
+			stations[i] = stations[j];
+			stations[j] = help;
+		}
+		return Arrays.copyOf(stations, size);
+	}
+	
+	private static void report(BenchmarkResult result) {
+		System.out.println(result);
+	}
+}
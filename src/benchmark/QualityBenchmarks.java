@@ -0,0 +1,282 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import common.InstanceCache;
+import common.StartSolution;
+import common.anytime.Budget;
+import common.anytime.Incumbent;
+import common.metrics.SearchMetrics;
+import common.random.RandomStreams;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+import main.Algorithm;
+import main.ResultStats;
+import main.RunConfiguration;
+import main.RunningStatistics;
+import main.Solvers;
+import main.Type;
+import sa.PVND_SA_Main;
+import utility.DirectExecutorService;
+
+/**
+ * End to end quality benchmark of the solvers against the optimal costs in the .opt files of data/. </br>
+ * Every configuration (VND and POP-VND per type, population and shuffle, SA+POP-VND per type and population, SA) solves every instance with an .opt file
+ * under the same time budget on a single thread. For every run the best solution is traced over time, giving
+ * the gap at fixed checkpoints, the time to reach each target gap and the evaluated moves per second. </br>
+ * Instance names can be given as arguments, otherwise all instances with an .opt file are used.
+ * Runs (with the seed they replay from) and a per configuration summary are printed and written as JSON to output/benchmark/
+ * so they can be compared between builds.
+ */
+public class QualityBenchmarks {
+
+	private static final long TIME_LIMIT_MILLIS = 5_000;
+	private static final int REPETITION_COUNT = 3;
+	private static final double[] GAP_TARGETS = new double[] {5,2,1,0}; //percent
+	private static final long[] CHECKPOINTS_MILLIS = new long[] {10,100,1_000,TIME_LIMIT_MILLIS};
+	private static final int[] POPULATION_SIZES = new int[] {2,3};
+	private static final boolean[] SHUFFLE_NEIGHBORHOODS_OPTIONS = new boolean[] {false,true};
+	private static final boolean[] ADAPTIVE_ORDERING_OPTIONS = new boolean[] {false,true};
+	private static final int ROUTE_CACHE_SIZE = 200_000; //a new cache for every run, 0 disables the route cache
+	private static final long SEED = 1; //master seed the run seeds are derived from, 0 draws one at start
+
+	public static void main(String[] args) throws IOException {
+		Map<String, Double> optimalCosts = ResultStats.readOptimalCosts(Paths.get("data/"));
+		List<String> instances = args.length>0 ? java.util.Arrays.asList(args) :
+			optimalCosts.keySet().stream().filter(n -> Files.exists(Paths.get("data/"+n+".vrp"))).sorted()
+				.collect(Collectors.toList());
+
+		long masterSeed = SEED!=0 ? SEED : RandomStreams.newSeed();
+		List<QualityResult> results = new ArrayList<>();
+		for(String name:instances) {
+			Double opt = optimalCosts.get(name);
+			if(opt==null) {
+				System.out.println("Skipping "+name+", it has no .opt file");
+				continue;
+			}
+			CVRPDescription description = InstanceCache.getDescription("data/"+name+".vrp");
+			for(int repetition=0; repetition<REPETITION_COUNT; repetition++) {
+				for(RunConfiguration run:getConfigurations(name, repetition)) {
+					String label = label(run);
+					long seed = RandomStreams.derive(masterSeed, (label+"/"+name+"/"+repetition).hashCode());
+					results.add(report(runSolver(label, description, name, repetition, opt.doubleValue(), run.withRouteCache(ROUTE_CACHE_SIZE).withSeed(seed), seed)));
+				}
+				long seed = RandomStreams.derive(masterSeed, ("SA/"+name+"/"+repetition).hashCode());
+				results.add(report(runSolver("SA", description, name, repetition, opt.doubleValue(), null, seed)));
+			}
+		}
+
+		Map<String, List<QualityResult>> byConfiguration = new LinkedHashMap<>();
+		for(QualityResult result:results)
+			byConfiguration.computeIfAbsent(result.configuration, c -> new ArrayList<>()).add(result);
+		List<String> summary = new ArrayList<>();
+		System.out.println();
+		for(Map.Entry<String, List<QualityResult>> entry:byConfiguration.entrySet()) {
+			summary.add(summarize(entry.getKey(), entry.getValue()));
+		}
+
+		String outFileName = "output/benchmark/quality_"+new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date())+".json";
+		writeJson(Paths.get(outFileName), masterSeed, results, summary);
+		System.out.println("Results written to "+outFileName);
+	}
+
+	private static List<RunConfiguration> getConfigurations(String name, int repetition) {
+		List<RunConfiguration> runs = new ArrayList<>();
+		for(boolean adaptive:ADAPTIVE_ORDERING_OPTIONS) {
+			//the adaptive order replaces the shuffle option
+			for(boolean shuffle:adaptive ? new boolean[] {false} : SHUFFLE_NEIGHBORHOODS_OPTIONS) {
+				for(Type type:Type.values()) {
+					runs.add(new RunConfiguration(Algorithm.VND, type, shuffle, 0, 1, repetition, name)
+							.withBudget(TIME_LIMIT_MILLIS, 0).withAdaptiveOrdering(adaptive));
+				}
+			}
+		}
+		for(boolean shuffle:SHUFFLE_NEIGHBORHOODS_OPTIONS) {
+			for(Type type:Type.values()) {
+				for(int population:POPULATION_SIZES) {
+					runs.add(new RunConfiguration(Algorithm.POP_VND, type, shuffle, population, 1, repetition, name)
+							.withBudget(TIME_LIMIT_MILLIS, 0));
+				}
+			}
+		}
+		for(Type type:Type.values()) {
+			for(int population:POPULATION_SIZES) {
+				runs.add(new RunConfiguration(Algorithm.POP_VND, type, false, population, 1, repetition, name)
+						.withBudget(TIME_LIMIT_MILLIS, 0).withAdaptiveOrdering(true));
+			}
+		}
+		for(Type type:Type.values()) {
+			for(int population:POPULATION_SIZES) {
+				runs.add(new RunConfiguration(Algorithm.SA_POP_VND, type, false, population, 1, repetition, name)
+						.withBudget(TIME_LIMIT_MILLIS, 0));
+			}
+		}
+		return runs;
+	}
+
+	private static String label(RunConfiguration run) {
+		String order = run.adaptiveOrdering ? " adaptive" : run.shuffleNeighborhoods ? " shuffle" : "";
+		if(run.algorithm==Algorithm.VND)
+			return "VND type="+run.type+order;
+		return run.algorithm+" type="+run.type+" population="+run.populationSize+order;
+	}
+
+	/**
+	 * Solves the instance with the run configuration (null for SA) and traces its incumbent.
+	 */
+	private static QualityResult runSolver(String configuration, CVRPDescription description, String name, int repetition,
+			double opt, RunConfiguration run, long seed) {
+		List<double[]> trace = new ArrayList<>();
+		Incumbent incumbent = new Incumbent();
+		SearchMetrics metrics = new SearchMetrics();
+		long startTime = System.nanoTime();
+		incumbent.addListener(s -> {
+			synchronized (trace) {
+				trace.add(new double[] {(System.nanoTime()-startTime)*1e-6, s.length});
+			}
+		});
+
+		Budget budget = new Budget(TIME_LIMIT_MILLIS, 0);
+		DemandRoutesSolution routes;
+		if(run==null) {
+			routes = PVND_SA_Main.solve(StartSolution.getInitialSolution(description, PVND_SA_Main.CONSTRUCTION), description, 
+					budget, incumbent, seed, metrics);
+		}
+		else {
+			DemandRoutesSolution start = StartSolution.getInitialSolution(description, run.construction);
+			switch (run.algorithm) {
+				case VND:
+					routes = Solvers.optimizeVND(start, description, run, null, budget, incumbent, metrics);
+					break;
+				case SA_POP_VND:
+					routes = Solvers.optimizeHybrid(start, description, run, new DirectExecutorService(), null, budget, incumbent, metrics);
+					break;
+				default:
+					routes = Solvers.optimizeISVND(start, description, run, new DirectExecutorService(), null, budget, incumbent, metrics);
+					break;
+			}
+		}
+		//moves whose routes were re-optimized, for every solver
+		long evaluations = metrics.getCandidates();
+		double time = (System.nanoTime()-startTime)*1e-6;
+
+		double[] timeToTarget = new double[GAP_TARGETS.length];
+		double[] gapAt = new double[CHECKPOINTS_MILLIS.length];
+		synchronized (trace) {
+			for(int t=0; t<GAP_TARGETS.length; t++) {
+				timeToTarget[t] = -1;
+				for(double[] point:trace) {
+					if(QualityResult.gap(point[1], opt)<=GAP_TARGETS[t]+1e-9) {
+						timeToTarget[t] = point[0];
+						break;
+					}
+				}
+			}
+			for(int c=0; c<CHECKPOINTS_MILLIS.length; c++) {
+				double best = Double.NaN;
+				for(double[] point:trace) {
+					if(point[0]>CHECKPOINTS_MILLIS[c])
+						break;
+					best = point[1];
+				}
+				gapAt[c] = QualityResult.gap(best, opt);
+			}
+		}
+		return new QualityResult(configuration, name, repetition, seed, opt, routes.length, time, evaluations, 
+				timeToTarget, gapAt);
+	}
+
+	/**
+	 * Prints and returns (as JSON) the mean gaps (at a checkpoint over the runs which had a solution by then), target success rates and mean times to target of a configuration.
+	 */
+	private static String summarize(String configuration, List<QualityResult> results) {
+		RunningStatistics gap = new RunningStatistics();
+		RunningStatistics throughput = new RunningStatistics();
+		RunningStatistics[] gapAt = new RunningStatistics[CHECKPOINTS_MILLIS.length];
+		RunningStatistics[] timeToTarget = new RunningStatistics[GAP_TARGETS.length];
+		for(int c=0; c<gapAt.length; c++)
+			gapAt[c] = new RunningStatistics();
+		for(int t=0; t<timeToTarget.length; t++)
+			timeToTarget[t] = new RunningStatistics();
+
+		for(QualityResult result:results) {
+			gap.add(result.getGap());
+			throughput.add(result.getEvaluationsPerSecond());
+			for(int c=0; c<gapAt.length; c++) {
+				if(!Double.isNaN(result.gapAt[c]))
+					gapAt[c].add(result.gapAt[c]);
+			}
+			for(int t=0; t<timeToTarget.length; t++) {
+				if(result.timeToTarget[t]>=0)
+					timeToTarget[t].add(result.timeToTarget[t]);
+			}
+		}
+
+		double[] meanGapAt = new double[gapAt.length];
+		for(int c=0; c<gapAt.length; c++)
+			meanGapAt[c] = gapAt[c].getCount()>0 ? gapAt[c].getMean() : Double.NaN;
+		double[] successRate = new double[timeToTarget.length];
+		double[] meanTimeToTarget = new double[timeToTarget.length];
+		StringBuilder targets = new StringBuilder();
+		for(int t=0; t<timeToTarget.length; t++) {
+			successRate[t] = timeToTarget[t].getCount()/(double) results.size();
+			meanTimeToTarget[t] = timeToTarget[t].getCount()>0 ? timeToTarget[t].getMean() : -1;
+			targets.append(String.format(Locale.ROOT, " %.0f%%:%3.0f%%/%.0fms", Double.valueOf(GAP_TARGETS[t]),
+					Double.valueOf(successRate[t]*100), Double.valueOf(meanTimeToTarget[t])));
+		}
+		System.out.println(String.format(Locale.ROOT, "%-44s gap %8.3f %% %14.0f eval/s  time to target%s",
+				configuration, Double.valueOf(gap.getMean()), Double.valueOf(throughput.getMean()), targets));
+
+		return String.format(Locale.ROOT,
+				"{\"configuration\":\"%s\",\"runs\":%d,\"gap\":%.4f,\"gapDeviation\":%.4f,\"evaluationsPerSecond\":%.1f,"
+				+ "\"gapAt\":%s,\"successRate\":%s,\"timeToTarget\":%s}",
+				configuration, Integer.valueOf(results.size()), Double.valueOf(gap.getMean()),
+				Double.valueOf(gap.getStandardDeviation()), Double.valueOf(throughput.getMean()),
+				QualityResult.toJson(meanGapAt), QualityResult.toJson(successRate), QualityResult.toJson(meanTimeToTarget));
+	}
+
+	/**
+	 * Writes the suite parameters, the per configuration summary and every run as one JSON object.
+	 */
+	private static void writeJson(Path file, long masterSeed, List<QualityResult> results, List<String> summary) 
+			throws IOException {
+		StringBuilder stringBuilder = new StringBuilder("{\n");
+		stringBuilder.append("  \"timeLimitMillis\":").append(TIME_LIMIT_MILLIS).append(",\n");
+		stringBuilder.append("  \"repetitions\":").append(REPETITION_COUNT).append(",\n");
+		stringBuilder.append("  \"masterSeed\":").append(masterSeed).append(",\n");
+		stringBuilder.append("  \"gapTargets\":").append(QualityResult.toJson(GAP_TARGETS)).append(",\n");
+		double[] checkpoints = new double[CHECKPOINTS_MILLIS.length];
+		for(int c=0; c<checkpoints.length; c++)
+			checkpoints[c] = CHECKPOINTS_MILLIS[c];
+		stringBuilder.append("  \"checkpointsMillis\":").append(QualityResult.toJson(checkpoints)).append(",\n");
+		stringBuilder.append("  \"summary\":[\n");
+		for(int i=0,size=summary.size(); i<size; i++) {
+			stringBuilder.append("    ").append(summary.get(i)).append(i==size-1 ? "\n" : ",\n");
+		}
+		stringBuilder.append("  ],\n  \"runs\":[\n");
+		for(int i=0,size=results.size(); i<size; i++) {
+			stringBuilder.append("    ").append(results.get(i).toJson()).append(i==size-1 ? "\n" : ",\n");
+		}
+		stringBuilder.append("  ]\n}\n");
+
+		if(file.getParent()!=null)
+			Files.createDirectories(file.getParent());
+		Files.write(file, stringBuilder.toString().getBytes());
+	}
+
+	private static QualityResult report(QualityResult result) {
+		System.out.println(result);
+		return result;
+	}
+}
@@ -0,0 +1,84 @@
+package benchmark;
+
+import java.util.Locale;
+
+/**
+ * Solution quality over time of a single run of a solver configuration, relative to the optimal cost of the instance.
+ */
+public final class QualityResult {
+
+	public final String configuration;
+	public final String instance;
+	public final int repetition;
+	/** Seed the run replays from */
+	public final long seed;
+	public final double opt;
+	public final double length;
+	/** Run time in milliseconds */
+	public final double time;
+	/** Candidate moves evaluated (VND, POP-VND, POP-VND phase of SA+POP-VND) or annealing steps (SA) */
+	public final long evaluations;
+	/** Time in milliseconds until the gap first reached each target of the suite, -1 if it never did */
+	public final double[] timeToTarget;
+	/** Gap in percent of the best solution at each checkpoint of the suite, NaN if there was no solution yet */
+	public final double[] gapAt;
+
+	public QualityResult(String configuration, String instance, int repetition, long seed, double opt, double length, 
+			double time, long evaluations, double[] timeToTarget, double[] gapAt) {
+		this.configuration = configuration;
+		this.instance = instance;
+		this.repetition = repetition;
+		this.seed = seed;
+		this.opt = opt;
+		this.length = length;
+		this.time = time;
+		this.evaluations = evaluations;
+		this.timeToTarget = timeToTarget;
+		this.gapAt = gapAt;
+	}
+
+	/**
+	 * Gap of the final solution in percent.
+	 */
+	public double getGap() {
+		return gap(length, opt);
+	}
+
+	public double getEvaluationsPerSecond() {
+		return time>0 ? evaluations/time*1e3 : 0;
+	}
+
+	public static double gap(double length, double opt) {
+		return (length-opt)/opt*100;
+	}
+
+	public String toJson() {
+		return String.format(Locale.ROOT,
+				"{\"configuration\":\"%s\",\"instance\":\"%s\",\"repetition\":%d,\"seed\":%d,\"opt\":%.1f,\"length\":%.1f,"
+				+ "\"gap\":%.4f,\"time\":%.3f,\"evaluations\":%d,\"evaluationsPerSecond\":%.1f,"
+				+ "\"timeToTarget\":%s,\"gapAt\":%s}",
+				configuration, instance, Integer.valueOf(repetition), Long.valueOf(seed), Double.valueOf(opt), Double.valueOf(length),
+				Double.valueOf(getGap()), Double.valueOf(time), Long.valueOf(evaluations),
+				Double.valueOf(getEvaluationsPerSecond()), toJson(timeToTarget), toJson(gapAt));
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "%-44s %-12s %10.1f %8.3f %% %10.1f ms %14.0f eval/s",
+				configuration, instance, Double.valueOf(length), Double.valueOf(getGap()), Double.valueOf(time),
+				Double.valueOf(getEvaluationsPerSecond()));
+	}
+
+	static String toJson(double[] values) {
+		StringBuilder stringBuilder = new StringBuilder("[");
+		for(int i=0; i<values.length; i++) {
+			if(i>0)
+				stringBuilder.append(',');
+			if(Double.isNaN(values[i]))
+				stringBuilder.append("null");
+			else
+				stringBuilder.append(String.format(Locale.ROOT, "%.4f", Double.valueOf(values[i])));
+		}
+		return stringBuilder.append(']').toString();
+	}
+}
@@ -0,0 +1,327 @@
+package common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import heuristic.routing.EdgeWeightType;
+import heuristic.routing.WeightCalculationFunction;
+
+/**
+ * Symmetric distance matrix stored as a single row-major block. </br>
+ * Distances can be kept as doubles, floats or ints (EUC_2D distances are rounded, so ints are exact)
+ * either on the heap, in direct memory or in a memory mapped file for very large instances. </br>
+ * The library routes and TSP solvers still work on <code>double[][]</code>, see {@link #toArray()}.
+ */
+public abstract class DistanceMatrix {
+
+	public static enum Precision{
+		DOUBLE(8), FLOAT(4), INT(4);
+
+		private final int bytes;
+
+		private Precision(int bytes) {
+			this.bytes = bytes;
+		}
+
+		public int getBytes() {
+			return bytes;
+		}
+	}
+
+	public static enum Storage{
+		/** Java array on the heap */
+		HEAP,
+		/** Direct memory outside of the heap */
+		OFF_HEAP,
+		/** Temporary memory mapped file */
+		MAPPED;
+	}
+
+	protected final int dimension;
+	protected final Precision precision;
+
+	protected DistanceMatrix(int dimension, Precision precision) {
+		this.dimension = dimension;
+		this.precision = precision;
+	}
+
+	public abstract double get(int i, int j);
+
+	protected abstract void set(int i, int j, double distance);
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	public Precision getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Returns the number of bytes used by the distances.
+	 */
+	public long getByteSize() {
+		return ((long)dimension)*dimension*precision.bytes;
+	}
+
+	/**
+	 * Calculates the length for the given array of stations. </br>
+	 * stations = [s1,s2,s3,...,sn]
+	 * length = distance[0][s1]+distance[s1][s2]+distance[s2][s3]+...+distance[sn-1][sn]+distance[sn][0]
+	 */
+	public double implicitLoopLength(int[] stations, int n) {
+		if(n==0)
+			return 0;
+
+		double length = get(0, stations[0]);
+		for(int i=0; i<n-1; i++) {
+			length += get(stations[i], stations[i+1]);
+		}
+		length += get(stations[n-1], 0);
+		return length;
+	}
+
+	/**
+	 * Returns the distances as a nested array for the library routes and solvers.
+	 */
+	public double[][] toArray() {
+		double[][] distance = new double[dimension][dimension];
+		copyTo(distance);
+		return distance;
+	}
+
+	/**
+	 * Copies the distances into the rows of the given nested array, e.g. the distances of a CVRPDescription.
+	 */
+	public void copyTo(double[][] distance) {
+		for(int i=0; i<dimension; i++) {
+			double[] row = distance[i];
+			for(int j=0; j<dimension; j++) {
+				row[j] = get(i, j);
+			}
+		}
+	}
+
+	//================================================================================================
+
+	/**
+	 * Returns the smallest precision which keeps the distances of the given type exact.
+	 */
+	public static Precision getPrecision(EdgeWeightType edgeWeightType) {
+		switch (edgeWeightType) {
+			case EUC_2D:
+				return Precision.INT;
+			default:
+				return Precision.DOUBLE;
+		}
+	}
+
+	/**
+	 * Returns a view of the given nested array. Nothing is copied.
+	 */
+	public static DistanceMatrix wrap(double[][] distance) {
+		return new NestedDistanceMatrix(distance);
+	}
+
+	/**
+	 * Copies the given nested array into a matrix with the given precision and storage.
+	 */
+	public static DistanceMatrix of(double[][] distance, Precision precision, Storage storage) throws IOException {
+		DistanceMatrix matrix = allocate(distance.length, precision, storage);
+		for(int i=0; i<distance.length; i++) {
+			for(int j=0; j<distance.length; j++) {
+				matrix.set(i, j, distance[i][j]);
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Calculates the distances between the given locations without ever building a nested array.
+	 */
+	public static DistanceMatrix compute(int[][] locations, EdgeWeightType edgeWeightType, Precision precision,
+			Storage storage) throws IOException {
+		DistanceMatrix matrix = allocate(locations.length, precision, storage);
+		WeightCalculationFunction calculationFunction = edgeWeightType.getCalculationFunction();
+		for(int i=0; i<locations.length; i++) {
+			for(int j=i+1;j<locations.length; j++) {
+				double distance = calculationFunction.calculate(locations[i][0], locations[i][1], locations[j][0], locations[j][1]);
+				matrix.set(i, j, distance);
+				matrix.set(j, i, distance);
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Maps dimension x dimension distances stored row-major in little endian order starting at the given file position.
+	 */
+	public static DistanceMatrix map(FileChannel channel, long position, int dimension, Precision precision,
+			boolean writable) throws IOException {
+		MapMode mode = writable ? MapMode.READ_WRITE : MapMode.READ_ONLY;
+		int rowsPerBuffer = BufferDistanceMatrix.rowsPerBuffer(dimension, precision);
+		ByteBuffer[] buffers = new ByteBuffer[(dimension+rowsPerBuffer-1)/rowsPerBuffer];
+		long rowBytes = ((long)dimension)*precision.bytes;
+		for(int b=0; b<buffers.length; b++) {
+			int rows = Math.min(rowsPerBuffer, dimension-b*rowsPerBuffer);
+			buffers[b] = channel.map(mode, position+b*rowsPerBuffer*rowBytes, rows*rowBytes);
+		}
+		return new BufferDistanceMatrix(dimension, precision, buffers);
+	}
+
+	private static DistanceMatrix allocate(int dimension, Precision precision, Storage storage) throws IOException {
+		switch (storage) {
+			case HEAP:
+				long size = ((long)dimension)*dimension;
+				if(size>Integer.MAX_VALUE-8)
+					throw new IllegalArgumentException("Instance too large for a heap matrix, use off heap storage");
+				return new ArrayDistanceMatrix(dimension, precision);
+			case OFF_HEAP:
+				int rowsPerBuffer = BufferDistanceMatrix.rowsPerBuffer(dimension, precision);
+				ByteBuffer[] buffers = new ByteBuffer[(dimension+rowsPerBuffer-1)/rowsPerBuffer];
+				for(int b=0; b<buffers.length; b++) {
+					int rows = Math.min(rowsPerBuffer, dimension-b*rowsPerBuffer);
+					buffers[b] = ByteBuffer.allocateDirect(rows*dimension*precision.bytes);
+				}
+				return new BufferDistanceMatrix(dimension, precision, buffers);
+			case MAPPED:
+				File file = File.createTempFile("distances", ".bin");
+				file.deleteOnExit();
+				try(RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")){
+					randomAccessFile.setLength(((long)dimension)*dimension*precision.bytes);
+					//the mapping stays valid after the channel is closed
+					return map(randomAccessFile.getChannel(), 0, dimension, precision, true);
+				}
+			default:
+				throw new IllegalArgumentException("Unknown storage: "+storage);
+		}
+	}
+
+	//================================================================================================
+
+	private static final class NestedDistanceMatrix extends DistanceMatrix{
+
+		private final double[][] distance;
+
+		public NestedDistanceMatrix(double[][] distance) {
+			super(distance.length, Precision.DOUBLE);
+			this.distance = distance;
+		}
+
+		@Override
+		public double get(int i, int j) {
+			return distance[i][j];
+		}
+
+		@Override
+		protected void set(int i, int j, double value) {
+			distance[i][j] = value;
+		}
+
+		@Override
+		public double[][] toArray() {
+			return distance;
+		}
+	}
+
+	private static final class ArrayDistanceMatrix extends DistanceMatrix{
+
+		private final double[] doubles;
+		private final float[] floats;
+		private final int[] ints;
+
+		public ArrayDistanceMatrix(int dimension, Precision precision) {
+			super(dimension, precision);
+			int size = dimension*dimension;
+			this.doubles = precision==Precision.DOUBLE ? new double[size] : null;
+			this.floats = precision==Precision.FLOAT ? new float[size] : null;
+			this.ints = precision==Precision.INT ? new int[size] : null;
+		}
+
+		@Override
+		public double get(int i, int j) {
+			int index = i*dimension+j;
+			switch (precision) {
+				case INT:
+					return ints[index];
+				case FLOAT:
+					return floats[index];
+				default:
+					return doubles[index];
+			}
+		}
+
+		@Override
+		protected void set(int i, int j, double distance) {
+			int index = i*dimension+j;
+			switch (precision) {
+				case INT:
+					ints[index] = (int) Math.round(distance);
+					break;
+				case FLOAT:
+					floats[index] = (float) distance;
+					break;
+				default:
+					doubles[index] = distance;
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Rows are split over several buffers since a single buffer is limited to 2GB.
+	 */
+	private static final class BufferDistanceMatrix extends DistanceMatrix{
+
+		private final ByteBuffer[] buffers;
+		private final int rowsPerBuffer;
+
+		public BufferDistanceMatrix(int dimension, Precision precision, ByteBuffer[] buffers) {
+			super(dimension, precision);
+			this.buffers = buffers;
+			this.rowsPerBuffer = rowsPerBuffer(dimension, precision);
+			for(ByteBuffer buffer:buffers)
+				buffer.order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		public static int rowsPerBuffer(int dimension, Precision precision) {
+			return Math.max(1, Integer.MAX_VALUE/(dimension*precision.bytes));
+		}
+
+		@Override
+		public double get(int i, int j) {
+			ByteBuffer buffer = buffers[i/rowsPerBuffer];
+			int index = ((i%rowsPerBuffer)*dimension+j)*precision.bytes;
+			switch (precision) {
+				case INT:
+					return buffer.getInt(index);
+				case FLOAT:
+					return buffer.getFloat(index);
+				default:
+					return buffer.getDouble(index);
+			}
+		}
+
+		@Override
+		protected void set(int i, int j, double distance) {
+			ByteBuffer buffer = buffers[i/rowsPerBuffer];
+			int index = ((i%rowsPerBuffer)*dimension+j)*precision.bytes;
+			switch (precision) {
+				case INT:
+					buffer.putInt(index, (int) Math.round(distance));
+					break;
+				case FLOAT:
+					buffer.putFloat(index, (float) distance);
+					break;
+				default:
+					buffer.putDouble(index, distance);
+					break;
+			}
+		}
+	}
+}
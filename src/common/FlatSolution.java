@@ -0,0 +1,191 @@
+package common;
+
+import java.util.Arrays;
+
+import heuristic.routing.DemandRoute;
+import heuristic.routing.ImplicitLoopDemandRoute;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * Struct of arrays form of a {@link DemandRoutesSolution}. </br>
+ * All routes are stored back to back in a single giant tour, route r holding tour[offsets[r]] to tour[offsets[r+1]-1],
+ * with the route lengths and demands in parallel arrays. Route lookups are O(1) array reads
+ * without a route object per access and cloning is a few array copies. </br>
+ * Use {@link #of(DemandRoutesSolution)} and {@link #toSolution(CVRPDescription)} to convert between the two forms,
+ * empty routes are kept so route indices stay the same.
+ */
+public final class FlatSolution {
+
+	private int[] tour;
+	private int[] offsets;
+	private double[] lengths;
+	private int[] demands;
+	private int routeCount;
+	private double length;
+
+	private FlatSolution(int[] tour, int[] offsets, double[] lengths, int[] demands, int routeCount, double length) {
+		this.tour = tour;
+		this.offsets = offsets;
+		this.lengths = lengths;
+		this.demands = demands;
+		this.routeCount = routeCount;
+		this.length = length;
+	}
+
+	@SuppressWarnings("rawtypes")
+	public static FlatSolution of(DemandRoutesSolution solution) {
+		int routeCount = solution.routes.size();
+		int stationCount = 0;
+		for(DemandRoute route:solution.routes) {
+			stationCount += route.size();
+		}
+
+		int[] tour = new int[stationCount];
+		int[] offsets = new int[routeCount+1];
+		double[] lengths = new double[routeCount];
+		int[] demands = new int[routeCount];
+		for(int r=0; r<routeCount; r++) {
+			DemandRoute route = solution.get(r);
+			System.arraycopy(route.getArray(), 0, tour, offsets[r], route.size());
+			offsets[r+1] = offsets[r]+route.size();
+			lengths[r] = route.getLength();
+			demands[r] = route.getDemand();
+		}
+		return new FlatSolution(tour, offsets, lengths, demands, routeCount, solution.length);
+	}
+
+	/**
+	 * Builds the route object form, e.g. for the library neighborhoods or Utilities.presentSolution.
+	 */
+	public DemandRoutesSolution toSolution(CVRPDescription description) {
+		DemandRoutesSolution solution = new DemandRoutesSolution();
+		for(int r=0; r<routeCount; r++) {
+			ImplicitLoopDemandRoute route = new ImplicitLoopDemandRoute(description.distance, description.demand);
+			route.addAll(Arrays.copyOfRange(tour, offsets[r], offsets[r+1]));
+			route.setLength(lengths[r]);
+			solution.add(route);
+		}
+		solution.length = length;
+		return solution;
+	}
+
+	//================================================================================================
+
+	public int getRouteCount() {
+		return routeCount;
+	}
+
+	public int getRouteSize(int r) {
+		return offsets[r+1]-offsets[r];
+	}
+
+	/**
+	 * Returns station i of route r.
+	 */
+	public int get(int r, int i) {
+		return tour[offsets[r]+i];
+	}
+
+	public double getRouteLength(int r) {
+		return lengths[r];
+	}
+
+	public int getRouteDemand(int r) {
+		return demands[r];
+	}
+
+	public double getLength() {
+		return length;
+	}
+
+	/**
+	 * Position of the first station of route r in the giant tour, getOffset(getRouteCount()) is the number of stations.
+	 */
+	public int getOffset(int r) {
+		return offsets[r];
+	}
+
+	/**
+	 * Be careful when using this array.
+	 * It is a reference to the internal storage, see {@link #getOffset(int)}.
+	 */
+	public int[] getTour() {
+		return tour;
+	}
+
+	/**
+	 * Replaces the stations of route r, moving the routes behind it if its size changes.
+	 */
+	public void setRoute(int r, int[] stations, int size, double routeLength, int routeDemand) {
+		int start = offsets[r];
+		int change = size-(offsets[r+1]-start);
+		int stationCount = offsets[routeCount];
+		if(change!=0) {
+			if(stationCount+change>tour.length)
+				tour = Arrays.copyOf(tour, stationCount+change);
+			System.arraycopy(tour, offsets[r+1], tour, offsets[r+1]+change, stationCount-offsets[r+1]);
+			for(int i=r+1; i<=routeCount; i++) {
+				offsets[i] += change;
+			}
+		}
+		System.arraycopy(stations, 0, tour, start, size);
+		length += routeLength-lengths[r];
+		lengths[r] = routeLength;
+		demands[r] = routeDemand;
+	}
+
+	public void removeEmptyRoutes() {
+		int kept = 0;
+		for(int r=0; r<routeCount; r++) {
+			if(offsets[r+1]>offsets[r]) {
+				offsets[kept+1] = offsets[r+1];
+				lengths[kept] = lengths[r];
+				demands[kept] = demands[r];
+				kept++;
+			}
+		}
+		routeCount = kept;
+	}
+
+	/**
+	 * Copies the other solution into this one, reusing the arrays when they are large enough.
+	 */
+	public void copy(FlatSolution other) {
+		int stationCount = other.offsets[other.routeCount];
+		if(tour.length<stationCount)
+			tour = new int[other.tour.length];
+		if(offsets.length<other.routeCount+1) {
+			offsets = new int[other.routeCount+1];
+			lengths = new double[other.routeCount];
+			demands = new int[other.routeCount];
+		}
+		System.arraycopy(other.tour, 0, tour, 0, stationCount);
+		System.arraycopy(other.offsets, 0, offsets, 0, other.routeCount+1);
+		System.arraycopy(other.lengths, 0, lengths, 0, other.routeCount);
+		System.arraycopy(other.demands, 0, demands, 0, other.routeCount);
+		routeCount = other.routeCount;
+		length = other.length;
+	}
+
+	@Override
+	public FlatSolution clone() {
+		return new FlatSolution(Arrays.copyOf(tour, offsets[routeCount]), Arrays.copyOf(offsets, routeCount+1),
+				Arrays.copyOf(lengths, routeCount), Arrays.copyOf(demands, routeCount), routeCount, length);
+	}
+
+	/**
+	 * Same format as DemandRoutesSolution.toString().
+	 */
+	@Override
+	public String toString() {
+		StringBuilder stringBuilder = new StringBuilder();
+		for(int r=0; r<routeCount; r++) {
+			stringBuilder.append("Route ").append(r+1).append(" : ")
+				.append(Arrays.toString(Arrays.copyOfRange(tour, offsets[r], offsets[r+1]))).append("\n");
+		}
+		if(stringBuilder.length()>0)
+			stringBuilder.setLength(stringBuilder.length()-1);
+		return stringBuilder.toString();
+	}
+}
@@ -0,0 +1,52 @@
+package common;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+
+import heuristic.routing.cvrp.CVRPDescription;
+
+/**
+ * Process wide cache of problem descriptions so every instance is read only once per grid. </br>
+ * Descriptions are shared between runs and threads, they must not be modified. </br>
+ * If a binary directory is set, instances are read through the binary instance format of {@link InstanceReader}.
+ */
+public class InstanceCache {
+
+	private static final ConcurrentHashMap<Path, CVRPDescription> DESCRIPTIONS = new ConcurrentHashMap<>();
+
+	private static volatile Path binaryDirectory = null;
+
+	public static CVRPDescription getDescription(String fileName) throws IOException {
+		Path file = Paths.get(fileName).toAbsolutePath().normalize();
+		try {
+			return DESCRIPTIONS.computeIfAbsent(file, f -> {
+				try {
+					Path directory = binaryDirectory;
+					return directory==null ? InstanceReader.read(f) : InstanceReader.read(f, directory);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Sets the directory binary instances are read from and written to (null only parses the source files).
+	 */
+	public static void setBinaryDirectory(Path directory) {
+		binaryDirectory = directory;
+	}
+
+	public static Path getBinaryDirectory() {
+		return binaryDirectory;
+	}
+
+	public static void clear() {
+		DESCRIPTIONS.clear();
+	}
+}
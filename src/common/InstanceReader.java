@@ -0,0 +1,316 @@
+package common;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.StringTokenizer;
+
+import common.DistanceMatrix.Precision;
+import heuristic.routing.EdgeWeightType;
+import heuristic.routing.cvrp.CVRPDescription;
+
+/**
+ * Reads CVRPLIB instances in a single pass and converts them to and from a binary instance format. </br>
+ * The binary format stores the coordinates, demands and the row-major distance matrix (little endian)
+ * so distances are read (see {@link #readBinary(Path)}) or mapped (see {@link #mapDistances(Path)}) without being calculated again.
+ */
+public class InstanceReader {
+
+	private static final int MAGIC = 0x43565250; //CVRP
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 40;
+
+	private static enum ReadState {
+		GENERAL_INFO, NODE_COORDINATE, NODE_DEMANDS;
+	}
+
+	/**
+	 * Same as CVRPDescription.getDescription but reads the file line by line
+	 * and accepts any whitespace between the values.
+	 */
+	public static CVRPDescription read(Path file) throws IOException {
+		return parse(file).description;
+	}
+
+	/**
+	 * Same as {@link #read(Path)} for instance text which is not stored in a file, e.g. sent to the solver service. </br>
+	 * The reader is not closed, source only names the instance in error messages.
+	 */
+	public static CVRPDescription read(BufferedReader reader, String source) throws IOException {
+		return parse(reader, source).description;
+	}
+
+	/**
+	 * Reads the instance from the binary file in the given directory if it is current,
+	 * otherwise parses the source file and writes the binary file for the next read.
+	 */
+	public static CVRPDescription read(Path file, Path binaryDirectory) throws IOException {
+		Path binaryFile = getBinaryFile(file, binaryDirectory);
+		long sourceSize = Files.size(file);
+		long sourceLastModified = Files.getLastModifiedTime(file).toMillis();
+		if(isBinaryCurrent(binaryFile, sourceSize, sourceLastModified))
+			return readBinary(binaryFile);
+
+		ParsedInstance instance = parse(file);
+		Files.createDirectories(binaryDirectory);
+		writeBinary(instance.description, instance.edgeWeightType, sourceSize, sourceLastModified, binaryFile);
+		return instance.description;
+	}
+
+	/**
+	 * Returns the binary file the given source file is stored to in the given directory.
+	 */
+	public static Path getBinaryFile(Path file, Path binaryDirectory) {
+		return binaryDirectory.resolve(file.getFileName().toString().replace(".vrp", "")+".bin");
+	}
+
+	private static ParsedInstance parse(Path file) throws IOException {
+		try(BufferedReader reader = Files.newBufferedReader(file)){
+			return parse(reader, file.toString());
+		}
+	}
+
+	/**
+	 * Throws IOException for malformed text, e.g. missing values or node ids outside of the dimension.
+	 */
+	private static ParsedInstance parse(BufferedReader reader, String source) throws IOException {
+		try {
+			return parseLines(reader, source);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid value in "+source+": "+e.getMessage(), e);
+		}
+	}
+
+	private static ParsedInstance parseLines(BufferedReader reader, String source) throws IOException {
+		int dim = 0;
+		int cap = 0;
+		EdgeWeightType edgeWeightType = null;
+		int[][] locations = null;
+		int[] demands = null;
+
+		ReadState state = ReadState.GENERAL_INFO;
+
+		String line;
+		while((line = reader.readLine())!=null) {
+			line = line.trim();
+			if(line.isEmpty())
+				continue;
+
+			if(line.startsWith("NAME") || line.startsWith("COMMENT") || line.startsWith("TYPE"))
+				continue;
+
+			if(line.startsWith("DIMENSION")) {
+				dim = Integer.parseInt(value(line));
+				if(dim<1)
+					throw new IOException("DIMENSION must be positive in "+source);
+				locations = new int[dim][2];
+				demands = new int[dim];
+			}
+			else if(line.startsWith("EDGE_WEIGHT_TYPE")) {
+				edgeWeightType = EdgeWeightType.getWeightType(value(line));
+			}
+			else if(line.startsWith("CAPACITY")){
+				cap = Integer.parseInt(value(line));
+			}
+			else if(line.startsWith("NODE_COORD_SECTION")) {
+				state = ReadState.NODE_COORDINATE;
+			}
+			else if(line.startsWith("DEMAND_SECTION")) {
+				state = ReadState.NODE_DEMANDS;
+			}
+			else if(line.startsWith("DEPOT_SECTION") || line.startsWith("EOF")){
+				break;
+			}
+			else if(locations==null) {
+				throw new IOException("Data before DIMENSION in "+source);
+			}
+			else if(state==ReadState.NODE_COORDINATE) {
+				StringTokenizer tokenizer = new StringTokenizer(line);
+				int id = id(tokenizer, dim, 2, source);
+				locations[id][0] = coordinate(tokenizer.nextToken());
+				locations[id][1] = coordinate(tokenizer.nextToken());
+			}
+			else if(state==ReadState.NODE_DEMANDS) {
+				StringTokenizer tokenizer = new StringTokenizer(line);
+				int id = id(tokenizer, dim, 1, source);
+				demands[id] = Integer.parseInt(tokenizer.nextToken());
+			}
+		}
+
+		if(locations==null || edgeWeightType==null)
+			throw new IOException("Missing DIMENSION or EDGE_WEIGHT_TYPE in "+source);
+
+		return new ParsedInstance(new CVRPDescription(dim,cap,locations,demands,edgeWeightType), edgeWeightType);
+	}
+
+	/**
+	 * Returns the 0 based node id of a section line which must be followed by the given number of values.
+	 */
+	private static int id(StringTokenizer tokenizer, int dim, int values, String source) throws IOException {
+		if(tokenizer.countTokens()<values+1)
+			throw new IOException("Too few values on a section line in "+source);
+		int id = Integer.parseInt(tokenizer.nextToken())-1;
+		if(id<0 || id>=dim)
+			throw new IOException("Node id "+(id+1)+" outside of 1.."+dim+" in "+source);
+		return id;
+	}
+
+	/**
+	 * Returns the value of a "KEY : value" line.
+	 */
+	private static String value(String line) {
+		int separator = line.indexOf(':');
+		return separator<0 ? line.substring(line.indexOf(' ')+1).trim() : line.substring(separator+1).trim();
+	}
+
+	private static int coordinate(String token) {
+		if(token.indexOf('.')<0 && token.indexOf('e')<0 && token.indexOf('E')<0)
+			return Integer.parseInt(token);
+		return (int) Math.round(Double.parseDouble(token));
+	}
+
+	//================================================================================================
+
+	/**
+	 * Writes the description to the binary instance format. </br>
+	 * The size and modification time of the source file are stored so stale files can be detected.
+	 */
+	public static void writeBinary(CVRPDescription description, EdgeWeightType edgeWeightType,
+			long sourceSize, long sourceLastModified, Path file) throws IOException {
+		int dim = description.dimension;
+		Precision precision = DistanceMatrix.getPrecision(edgeWeightType);
+		long distancesOffset = distancesOffset(dim);
+
+		Path temporary = file.resolveSibling(file.getFileName()+".tmp");
+		try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+			ByteBuffer header = ByteBuffer.allocate((int)distancesOffset).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(dim).putInt(description.capacity);
+			header.putInt(edgeWeightType.ordinal()).putInt(precision.ordinal());
+			header.putLong(sourceSize).putLong(sourceLastModified);
+			for(int[] location:description.locations)
+				header.putInt(location[0]).putInt(location[1]);
+			for(int demand:description.demand)
+				header.putInt(demand);
+			header.rewind();
+			while(header.hasRemaining())
+				channel.write(header);
+
+			DistanceMatrix distances = DistanceMatrix.map(channel, distancesOffset, dim, precision, true);
+			for(int i=0; i<dim; i++) {
+				for(int j=0; j<dim; j++) {
+					distances.set(i, j, description.distance[i][j]);
+				}
+			}
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Reads a description from the binary instance format, its distances are the stored matrix. </br>
+	 * CVRPDescription always calculates distances from the locations it is given, so it is created before the 
+	 * locations are read and its rows are overwritten with the stored distances.
+	 */
+	public static CVRPDescription readBinary(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			Header header = readHeader(channel);
+			int dim = header.dimension;
+			int[][] locations = new int[dim][2];
+			int[] demands = new int[dim];
+			CVRPDescription description = new CVRPDescription(dim, header.capacity, locations, demands, header.edgeWeightType);
+
+			IntBuffer data = channel.map(MapMode.READ_ONLY, HEADER_BYTES, 12L*dim)
+					.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			for(int i=0; i<dim; i++) {
+				locations[i][0] = data.get();
+				locations[i][1] = data.get();
+			}
+			data.get(demands);
+			DistanceMatrix.map(channel, distancesOffset(dim), dim, header.precision, false).copyTo(description.distance);
+			return description;
+		}
+	}
+
+	/**
+	 * Maps the distances stored in the binary instance format without copying them.
+	 */
+	public static DistanceMatrix mapDistances(Path file) throws IOException {
+		try(RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "r")){
+			FileChannel channel = randomAccessFile.getChannel();
+			Header header = readHeader(channel);
+			//the mapping stays valid after the channel is closed
+			return DistanceMatrix.map(channel, distancesOffset(header.dimension), header.dimension, header.precision, false);
+		}
+	}
+
+	/**
+	 * Does the binary file exist and was it written from the source file in its current state.
+	 */
+	public static boolean isBinaryCurrent(Path file, long sourceSize, long sourceLastModified) throws IOException {
+		if(!Files.isRegularFile(file))
+			return false;
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			Header header = readHeader(channel);
+			return header.sourceSize==sourceSize && header.sourceLastModified==sourceLastModified;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static long distancesOffset(int dimension) {
+		long offset = HEADER_BYTES+12L*dimension;
+		return (offset+7)/8*8;
+	}
+
+	private static Header readHeader(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, buffer.position())<0)
+				throw new IOException("Truncated binary instance");
+		}
+		buffer.flip();
+		if(buffer.getInt()!=MAGIC || buffer.getInt()!=VERSION)
+			throw new IOException("Not a binary instance of version "+VERSION);
+
+		Header header = new Header();
+		header.dimension = buffer.getInt();
+		header.capacity = buffer.getInt();
+		header.edgeWeightType = EdgeWeightType.values()[buffer.getInt()];
+		header.precision = Precision.values()[buffer.getInt()];
+		header.sourceSize = buffer.getLong();
+		header.sourceLastModified = buffer.getLong();
+
+		if(channel.size()<distancesOffset(header.dimension)+((long)header.dimension)*header.dimension*header.precision.getBytes())
+			throw new IOException("Truncated binary instance");
+		return header;
+	}
+
+	private static final class ParsedInstance{
+		private final CVRPDescription description;
+		private final EdgeWeightType edgeWeightType;
+
+		public ParsedInstance(CVRPDescription description, EdgeWeightType edgeWeightType) {
+			this.description = description;
+			this.edgeWeightType = edgeWeightType;
+		}
+	}
+
+	private static final class Header{
+		private int dimension;
+		private int capacity;
+		private EdgeWeightType edgeWeightType;
+		private Precision precision;
+		private long sourceSize;
+		private long sourceLastModified;
+	}
+}
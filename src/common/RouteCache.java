@@ -0,0 +1,195 @@
+package common;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import heuristic.routing.cvrp.CVRPDescription;
+
+/**
+ * Thread safe, size bounded memory of already solved TSP routes of one problem description. </br>
+ * Routes are keyed by their station set (order does not matter), a cache is meant to be created per run
+ * and shared between its neighborhoods and population members, so it is dropped together with the run. </br>
+ * The cache is split into independently locked segments to keep contention low when used from an executor.
+ */
+public class RouteCache {
+
+	public static enum Eviction{
+		/** Evicts the least recently used route */
+		LRU, 
+		/** Evicts the oldest inserted route */
+		FIFO;
+	}
+
+	private final CVRPDescription description;
+	private final Segment[] segments;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public RouteCache(CVRPDescription description, int maxSize) {
+		this(description, maxSize, Eviction.LRU, Runtime.getRuntime().availableProcessors()*4);
+	}
+	
+	/**
+	 * @param description - description whose distances all cached routes are solved on
+	 * @param maxSize - maximum number of routes kept in the cache
+	 * @param eviction - which route to drop once a segment is full
+	 * @param segmentCount - number of independently locked segments
+	 */
+	public RouteCache(CVRPDescription description, int maxSize, Eviction eviction, int segmentCount) {
+		if(maxSize<=0 || segmentCount<=0)
+			throw new IllegalArgumentException("Cache size and segment count must be positive");
+
+		this.description = description;
+		segmentCount = Math.min(segmentCount, maxSize);
+		int segmentSize = (maxSize+segmentCount-1)/segmentCount;
+		
+		segments = new Segment[segmentCount];
+		for(int i=0; i<segmentCount; i++) {
+			segments[i] = new Segment(segmentSize, eviction==Eviction.LRU);
+		}
+	}
+	
+	public CVRPDescription getDescription() {
+		return description;
+	}
+
+	/**
+	 * Returns true if the routes of this cache were solved on the given distances.
+	 */
+	public boolean isFor(double[][] distances) {
+		return description.distance==distances;
+	}
+
+	/**
+	 * If the station set of the first n stations was already solved
+	 * the stations are reordered to the cached order and its length is returned. </br>
+	 * Otherwise nothing is changed and NaN is returned.
+	 */
+	public double lookup(int[] stations, int n) {
+		Key key = new Key(stations, n);
+		CachedRoute entry = segmentFor(key).get(key);
+		if(entry==null) {
+			misses.increment();
+			return Double.NaN;
+		}
+		hits.increment();
+		System.arraycopy(entry.order, 0, stations, 0, n);
+		return entry.length;
+	}
+
+	/**
+	 * Stores the first n stations as the solved order with the given length.
+	 */
+	public void store(int[] stations, int n, double length) {
+		Key key = new Key(stations, n);
+		segmentFor(key).put(key, new CachedRoute(Arrays.copyOf(stations, n), length));
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	public int size() {
+		int size = 0;
+		for(Segment segment:segments)
+			size+=segment.size();
+		return size;
+	}
+	
+	public void clear() {
+		for(Segment segment:segments)
+			segment.clear();
+		hits.reset();
+		misses.reset();
+	}
+	
+	@Override
+	public String toString() {
+		long h = getHits();
+		long m = getMisses();
+		double hitRate = h+m==0 ? 0 : ((double)h)/(h+m);
+		return "Route cache: size="+size()+" hits="+h+" misses="+m+" hitRate="+hitRate;
+	}
+
+	//================================================================================================
+
+	private Segment segmentFor(Key key) {
+		int h = key.hash;
+		h ^= (h>>>16);
+		return segments[(h & 0x7fffffff) % segments.length];
+	}
+	
+	private static final class Segment{
+		
+		private final LinkedHashMap<Key, CachedRoute> map;
+		
+		public Segment(int maxSize, boolean accessOrder) {
+			map = new LinkedHashMap<Key, CachedRoute>(16, 0.75f, accessOrder) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Key, CachedRoute> eldest) {
+					return size()>maxSize;
+				}
+			};
+		}
+		
+		public synchronized CachedRoute get(Key key) {
+			return map.get(key);
+		}
+		
+		public synchronized void put(Key key, CachedRoute entry) {
+			map.put(key, entry);
+		}
+		
+		public synchronized int size() {
+			return map.size();
+		}
+		
+		public synchronized void clear() {
+			map.clear();
+		}
+	}
+
+	private static final class Key{
+		private final int[] stations;
+		private final int hash;
+		
+		public Key(int[] stations, int n) {
+			this.stations = Arrays.copyOf(stations, n);
+			Arrays.sort(this.stations);
+			this.hash = Arrays.hashCode(this.stations);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(this==obj)
+				return true;
+			if(!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return hash==other.hash && Arrays.equals(stations, other.stations);
+		}
+	}
+	
+	private static final class CachedRoute{
+		private final int[] order;
+		private final double length;
+		
+		public CachedRoute(int[] order, double length) {
+			this.order = order;
+			this.length = length;
+		}
+	}
+}
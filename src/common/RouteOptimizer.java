@@ -0,0 +1,101 @@
+package common;
+
+import common.random.RandomStreams;
+import heuristic.routing.Route;
+import heuristic.routing.tsp.ClarkeWrightTSPSolver;
+import heuristic.routing.tsp.ITSPArraySolver;
+import heuristic.routing.tsp.TSPH2ArraySolver;
+
+/**
+ * Same TSP route re-optimization as CVRPUtility, but also usable on plain station arrays
+ * so a candidate route can be solved without building a route object. </br>
+ * Given a {@link RouteCache} already solved station sets are taken from it instead of being solved again. </br>
+ * Like CompositeTSPSolver every route is solved by a randomly chosen solver, drawn from the stream bound to the 
+ * thread (see {@link RandomStreams}) instead of one Random shared by all threads. </br>
+ * With repair enabled (see {@link #setRepair(double)}) a route changed by a move is repaired by {@link RouteRepair}
+ * and only solved from scratch if the repaired route is too long.
+ */
+public class RouteOptimizer {
+
+	private static final ITSPArraySolver[] TSP_SOLVERS = new ITSPArraySolver[] {
+			new ClarkeWrightTSPSolver(),
+			new TSPH2ArraySolver()
+		};
+	
+	private static volatile double repairFallback = 0;
+
+	/**
+	 * Reorders the first n stations in the given array and returns the implicit loop length.
+	 */
+	public static double optimize(double[][] distances, int[] stations, int n) {
+		return optimize(null, distances, stations, n);
+	}
+
+	/**
+	 * Same as {@link #optimize(double[][], int[], int)}, taking already solved station sets from the cache
+	 * (null or a cache of other distances solves every route).
+	 */
+	public static double optimize(RouteCache cache, double[][] distances, int[] stations, int n) {
+		if(cache==null || n<=2 || !cache.isFor(distances))
+			return solve(distances, stations, n);
+		
+		double length = cache.lookup(stations, n);
+		if(Double.isNaN(length)) {
+			length = solve(distances, stations, n);
+			cache.store(stations, n, length);
+		}
+		return length;
+	}
+
+	/**
+	 * Reorders the first n stations of a route changed by a move and returns the implicit loop length. </br>
+	 * The first n-inserted stations are the stations the route kept, in their order before the move,
+	 * the last inserted stations are the ones the move added.
+	 * Without repair this is {@link #optimize(RouteCache, double[][], int[], int)}.
+	 * @param cache - already solved routes (null for none)
+	 * @param previousLength - length of the route before the move
+	 */
+	public static double optimize(RouteCache cache, double[][] distances, int[] stations, int n, int inserted, 
+			double previousLength) {
+		double fallback = repairFallback;
+		if(fallback<=0 || n<=2)
+			return optimize(cache, distances, stations, n);
+
+		RouteCache routeCache = cache!=null && cache.isFor(distances) ? cache : null;
+		if(routeCache!=null) {
+			double length = routeCache.lookup(stations, n);
+			if(!Double.isNaN(length))
+				return length;
+		}
+		double length = RouteRepair.repair(distances, stations, n, inserted);
+		if(length<=fallback*previousLength)
+			return length;
+		length = solve(distances, stations, n);
+		if(routeCache!=null)
+			routeCache.store(stations, n, length);
+		return length;
+	}
+
+	private static double solve(double[][] distances, int[] stations, int n) {
+		return TSP_SOLVERS[RandomStreams.current().nextInt(TSP_SOLVERS.length)].solveImplicit(distances, stations, n);
+	}
+
+	public static void optimizeRoute(Route<?> route) {
+		double length = optimize(route.getDistances(), route.getArray(), route.size());
+		route.setLength(length);
+	}
+	
+	/**
+	 * Enables the incremental repair of routes changed by a move, a repaired route longer than fallbackRatio times
+	 * its length before the move is solved from scratch (0 solves every changed route from scratch). </br>
+	 * Only solved routes are stored in the cache.
+	 */
+	public static void setRepair(double fallbackRatio) {
+		repairFallback = fallbackRatio;
+	}
+
+	public static double getRepair() {
+		return repairFallback;
+	}
+
+}
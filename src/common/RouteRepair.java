@@ -0,0 +1,148 @@
+package common;
+
+import heuristic.routing.RoutingUtility;
+
+/**
+ * Incremental TSP repair of a route changed by a single move, in place of solving it from scratch. </br>
+ * The stations kept from the route before the move are already in a good order (removed stations were spliced out),
+ * the stations the move added are put in by cheapest insertion and the tour is then improved by 2-opt and Or-opt
+ * (segments of up to {@link #OR_OPT_MAX_SEGMENT} stations, also reversed) for at most {@link #MAX_PASSES} passes. </br>
+ * Like the array TSP solvers the tour is an implicit loop from and to the depot (station 0)
+ * and the distances are assumed to be symmetric. No memory is allocated.
+ */
+public final class RouteRepair {
+
+	public static final int OR_OPT_MAX_SEGMENT = 3;
+	public static final int MAX_PASSES = 3;
+	private static final double EPSILON = 1e-9;
+
+	private RouteRepair() {
+	}
+
+	/**
+	 * Reorders the first n stations and returns the implicit loop length. </br>
+	 * The first n-inserted stations must be a tour, the last inserted stations are inserted into it.
+	 */
+	public static double repair(double[][] distances, int[] stations, int n, int inserted) {
+		for(int i=n-inserted; i<n; i++) {
+			insert(distances, stations, i);
+		}
+		if(n>3) {
+			for(int pass=0; pass<MAX_PASSES; pass++) {
+				boolean improved = twoOpt(distances, stations, n);
+				improved |= orOpt(distances, stations, n);
+				if(!improved)
+					break;
+			}
+		}
+		return RoutingUtility.calculateImplicitLoopLength(stations, n, distances);
+	}
+
+	/**
+	 * Inserts station size at its cheapest position of the tour of the first size stations.
+	 */
+	private static void insert(double[][] distances, int[] stations, int size) {
+		int station = stations[size];
+		int bestPosition = size;
+		double bestChange = Double.POSITIVE_INFINITY;
+		for(int p=0; p<=size; p++) {
+			int previous = p==0 ? 0 : stations[p-1];
+			int next = p==size ? 0 : stations[p];
+			double change = distances[previous][station]+distances[station][next]-distances[previous][next];
+			if(change<bestChange) {
+				bestChange = change;
+				bestPosition = p;
+			}
+		}
+		System.arraycopy(stations, bestPosition, stations, bestPosition+1, size-bestPosition);
+		stations[bestPosition] = station;
+	}
+
+	/**
+	 * Applies every improving segment reversal found in one sweep, returns true if there was one.
+	 */
+	private static boolean twoOpt(double[][] distances, int[] stations, int n) {
+		boolean improved = false;
+		for(int i=0; i<n-1; i++) {
+			for(int j=i+1; j<n; j++) {
+				int previous = i==0 ? 0 : stations[i-1];
+				int next = j==n-1 ? 0 : stations[j+1];
+				int first = stations[i];
+				int last = stations[j];
+				double change = distances[previous][last]+distances[first][next]
+						-distances[previous][first]-distances[last][next];
+				if(change<-EPSILON) {
+					reverse(stations, i, j);
+					improved = true;
+				}
+			}
+		}
+		return improved;
+	}
+
+	/**
+	 * Applies every improving segment relocation found in one sweep, returns true if there was one.
+	 */
+	private static boolean orOpt(double[][] distances, int[] stations, int n) {
+		boolean improved = false;
+		for(int length=1; length<=OR_OPT_MAX_SEGMENT && length<n; length++) {
+			for(int i=0; i+length<=n; i++) {
+				int e = i+length-1;
+				int first = stations[i];
+				int last = stations[e];
+				int previous = i==0 ? 0 : stations[i-1];
+				int next = e==n-1 ? 0 : stations[e+1];
+				double removeGain = distances[previous][first]+distances[last][next]-distances[previous][next];
+
+				//gap g lies between station g-1 and station g, the gaps next to the segment change nothing
+				for(int g=0; g<=n; g++) {
+					if(g>=i && g<=e+1)
+						continue;
+					int a = g==0 ? 0 : stations[g-1];
+					int b = g==n ? 0 : stations[g];
+					double forward = distances[a][first]+distances[last][b]-distances[a][b];
+					double reversed = distances[a][last]+distances[first][b]-distances[a][b];
+					double insertCost = Math.min(forward, reversed);
+					if(insertCost-removeGain<-EPSILON) {
+						move(stations, i, e, g, reversed<forward);
+						improved = true;
+						break;
+					}
+				}
+			}
+		}
+		return improved;
+	}
+
+	/**
+	 * Moves the segment i..e to gap g.
+	 */
+	private static void move(int[] stations, int i, int e, int g, boolean reversed) {
+		int length = e-i+1;
+		int start;
+		if(g<i) {
+			//rotate g..e right by the segment length
+			reverse(stations, g, e);
+			reverse(stations, g, g+length-1);
+			reverse(stations, g+length, e);
+			start = g;
+		}
+		else {
+			//rotate i..g-1 left by the segment length
+			reverse(stations, i, g-1);
+			reverse(stations, i, g-1-length);
+			reverse(stations, g-length, g-1);
+			start = g-length;
+		}
+		if(reversed)
+			reverse(stations, start, start+length-1);
+	}
+
+	private static void reverse(int[] stations, int from, int to) {
+		while(from<to) {
+			int station = stations[from];
+			stations[from++] = stations[to];
+			stations[to--] = station;
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package common;
 
+import common.construction.Construction;
 import heuristic.routing.ImplicitLoopDemandRoute;
 import heuristic.routing.cvrp.CVRPDescription;
 import heuristic.routing.cvrp.DemandRoutesSolution;
@@ -19,4 +20,8 @@ public class StartSolution {
 		return solution;
 	}
 
+	public static DemandRoutesSolution getInitialSolution(CVRPDescription description, Construction construction) {
+		return construction.getGenerator().generateImplicitRoutes(description);
+	}
+
 }
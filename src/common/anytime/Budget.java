@@ -0,0 +1,71 @@
+package common.anytime;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time and iteration budget of a single optimization run. </br>
+ * Algorithms and neighborhoods poll {@link #isExhausted()} and stop as soon as it returns true,
+ * so a run can also be cancelled from another thread with {@link #cancel()}.
+ */
+public final class Budget {
+	
+	private final long startTime;
+	private final long deadline;
+	private final long iterationLimit;
+	private final LongAdder iterations = new LongAdder();
+	private volatile boolean cancelled = false;
+
+	/**
+	 * @param timeLimitMillis - time from now after which the budget is exhausted (0 for no limit)
+	 * @param iterationLimit - number of iterations after which the budget is exhausted (0 for no limit)
+	 */
+	public Budget(long timeLimitMillis, long iterationLimit) {
+		if(timeLimitMillis<0 || iterationLimit<0)
+			throw new IllegalArgumentException("Limits must not be negative");
+		
+		this.startTime = System.nanoTime();
+		this.deadline = timeLimitMillis>0 ? startTime+timeLimitMillis*1_000_000 : Long.MAX_VALUE;
+		this.iterationLimit = iterationLimit>0 ? iterationLimit : Long.MAX_VALUE;
+	}
+
+	public static Budget unlimited() {
+		return new Budget(0, 0);
+	}
+
+	public boolean isExhausted() {
+		return cancelled || iterations.sum()>=iterationLimit || 
+				(deadline!=Long.MAX_VALUE && System.nanoTime()-deadline>=0);
+	}
+
+	/**
+	 * Counts one iteration of the algorithm.
+	 */
+	public void iterate() {
+		iterations.increment();
+	}
+
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public long getIterations() {
+		return iterations.sum();
+	}
+
+	public long getElapsedMillis() {
+		return (System.nanoTime()-startTime)/1_000_000;
+	}
+	
+	/**
+	 * Returns the time left before the deadline (Long.MAX_VALUE if there is none).
+	 */
+	public long getRemainingMillis() {
+		if(deadline==Long.MAX_VALUE)
+			return Long.MAX_VALUE;
+		return Math.max(0, (deadline-System.nanoTime())/1_000_000);
+	}
+}
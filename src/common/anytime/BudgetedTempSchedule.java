@@ -0,0 +1,36 @@
+package common.anytime;
+
+import heuristic.annealing.schedule.ITempSchedule;
+
+/**
+ * Temperature schedule which ends the annealing once the budget is exhausted. </br>
+ * Every temperature step counts as an iteration.
+ */
+public final class BudgetedTempSchedule implements ITempSchedule {
+
+	private final ITempSchedule tempSchedule;
+	private final Budget budget;
+
+	public BudgetedTempSchedule(ITempSchedule tempSchedule, Budget budget) {
+		this.tempSchedule = tempSchedule;
+		this.budget = budget;
+	}
+
+	@Override
+	public double getNextTemperature() {
+		if(budget.isExhausted())
+			return 0;
+		budget.iterate();
+		return tempSchedule.getNextTemperature();
+	}
+
+	@Override
+	public int getInnerLoopCounter() {
+		return tempSchedule.getInnerLoopCounter();
+	}
+
+	@Override
+	public int getOuterLoopCounter() {
+		return tempSchedule.getOuterLoopCounter();
+	}
+}
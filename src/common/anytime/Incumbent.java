@@ -0,0 +1,57 @@
+package common.anytime;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * Thread safe holder of the best solution found so far by a run. </br>
+ * Better solutions are stored as copies and passed to the listeners on the thread which offered them,
+ * listeners must not modify the solution they receive.
+ */
+public final class Incumbent {
+	
+	private final List<Consumer<DemandRoutesSolution>> listeners = new CopyOnWriteArrayList<>();
+	private volatile DemandRoutesSolution best = null;
+	private volatile double length = Double.POSITIVE_INFINITY;
+
+	public void addListener(Consumer<DemandRoutesSolution> listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Stores a copy of the solution if it is shorter than the best one. </br>
+	 * Returns true if it was stored.
+	 */
+	public boolean offer(DemandRoutesSolution solution) {
+		if(solution.length>=length)
+			return false;
+		
+		DemandRoutesSolution copy;
+		synchronized (this) {
+			if(solution.length>=length)
+				return false;
+			copy = solution.clone();
+			copy.removeEmptyRoutes();
+			best = copy;
+			length = solution.length;
+		}
+		for(Consumer<DemandRoutesSolution> listener:listeners)
+			listener.accept(copy);
+		return true;
+	}
+
+	/**
+	 * Returns a copy of the best solution or null if nothing was offered yet.
+	 */
+	public DemandRoutesSolution get() {
+		DemandRoutesSolution solution = best;
+		return solution==null ? null : solution.clone();
+	}
+
+	public double getLength() {
+		return length;
+	}
+}
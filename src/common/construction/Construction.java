@@ -0,0 +1,31 @@
+package common.construction;
+
+import common.StartSolution;
+import heuristic.routing.cvrp.ICVRPSolutionGenerator;
+
+/**
+ * Start solution strategies selectable per run.
+ */
+public enum Construction {
+	/** One route per customer */
+	SINGLETON,
+	/** Clarke-Wright savings */
+	SAVINGS,
+	/** Routes filled by polar angle around the depot */
+	SWEEP,
+	/** Routes extended by the closest fitting customer */
+	NEAREST_NEIGHBOR;
+
+	public ICVRPSolutionGenerator getGenerator() {
+		switch (this) {
+			case SAVINGS:
+				return new SavingsSolutionGenerator();
+			case SWEEP:
+				return new SweepSolutionGenerator();
+			case NEAREST_NEIGHBOR:
+				return new NearestNeighborSolutionGenerator();
+			default:
+				return StartSolution::getInitialSolution;
+		}
+	}
+}
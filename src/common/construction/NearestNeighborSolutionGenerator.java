@@ -0,0 +1,58 @@
+package common.construction;
+
+import heuristic.routing.DemandRoute;
+import heuristic.routing.ImplicitLoopDemandRoute;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+import heuristic.routing.cvrp.ICVRPSolutionGenerator;
+
+/**
+ * Nearest neighbor construction: a route is extended with the closest unassigned customer 
+ * which still fits, starting from the depot. When no customer fits a new route is started.
+ */
+public class NearestNeighborSolutionGenerator implements ICVRPSolutionGenerator{
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public DemandRoutesSolution generateImplicitRoutes(CVRPDescription description) {
+		int dimension = description.dimension;
+		
+		//unassigned customers are kept in the first unassignedCount places
+		int[] unassigned = new int[dimension-1];
+		for(int i=1; i<dimension; i++)
+			unassigned[i-1] = i;
+		int unassignedCount = unassigned.length;
+		
+		DemandRoutesSolution solution = new DemandRoutesSolution();
+		DemandRoute route = new ImplicitLoopDemandRoute(description.distance, description.demand);
+		int last = 0;
+		while(unassignedCount>0) {
+			double[] distances = description.distance[last];
+			int remainingCapacity = description.capacity-route.getDemand();
+			int best = -1;
+			for(int i=0; i<unassignedCount; i++) {
+				int station = unassigned[i];
+				if(description.demand[station]<=remainingCapacity && (best==-1 || distances[station]<distances[unassigned[best]]))
+					best = i;
+			}
+			
+			if(best==-1) {
+				if(route.size()==0)
+					throw new IllegalArgumentException("Customer demand exceeds the vehicle capacity");
+				solution.add(route);
+				route = new ImplicitLoopDemandRoute(description.distance, description.demand);
+				last = 0;
+				continue;
+			}
+			
+			last = unassigned[best];
+			unassigned[best] = unassigned[--unassignedCount];
+			route.add(last);
+		}
+		if(route.size()>0)
+			solution.add(route);
+		
+		return solution;
+	}
+
+}
@@ -0,0 +1,196 @@
+package common.construction;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import heuristic.routing.DemandRoute;
+import heuristic.routing.ImplicitLoopDemandRoute;
+import heuristic.routing.RoutingUtility;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+import heuristic.routing.cvrp.ICVRPSolutionGenerator;
+
+/**
+ * Same route joining as ClarkeWrightSolutionGenerator, but the savings are kept in a single primitive array. </br>
+ * Every saving is packed as a float with its customer pair into a long, so sorting the array by value orders 
+ * the savings from largest to smallest, equal savings in the order the pairs were generated.
+ * Savings which are only equal as floats are then ordered by their exact value, 
+ * which gives the order of the library's sort by the double savings. </br>
+ * For large instances the savings are calculated and sorted in parallel.
+ */
+public class SavingsSolutionGenerator implements ICVRPSolutionGenerator{
+	
+	private static final int PARALLEL_THRESHOLD = 500;
+	private static final int MAX_DIMENSION = 1<<16;
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public DemandRoutesSolution generateImplicitRoutes(CVRPDescription description) {
+		int dimension = description.dimension;
+		if(dimension>MAX_DIMENSION)
+			throw new IllegalArgumentException("Savings can not be packed for more than "+MAX_DIMENSION+" stations");
+		
+		long[] savings = calculateSavings(description);
+		
+		//Generate initial routes
+		DemandRoutesSolution solution = new DemandRoutesSolution();
+		int[] routeAffiliation = new int[dimension];
+		int[] possitionInRoute = new int[dimension];
+		for(int i=1; i<dimension;i++) {
+			if(description.demand[i]>description.capacity)
+				throw new IllegalArgumentException("Customer demand exceeds the vehicle capacity");
+			DemandRoute route = new ImplicitLoopDemandRoute(description.distance, description.demand);
+			route.add(i);
+			solution.add(route);
+			routeAffiliation[i]=i-1;
+			possitionInRoute[i] = 0;
+		}
+		
+		//Join routes
+		for(long saving:savings) {
+			int pair = (int) saving;
+			int start = (pair>>>16);
+			int end = (pair & 0xffff);
+			
+			int r1 = routeAffiliation[start];
+			int r2 = routeAffiliation[end];
+			if(r1==r2)
+				continue;
+			
+			DemandRoute route1 = solution.get(r1);
+			DemandRoute route2 = solution.get(r2);
+			
+			boolean startFirst = possitionInRoute[start]==0;
+			boolean startLast = possitionInRoute[start]==route1.size()-1;
+			boolean endFirst = possitionInRoute[end]==0;
+			boolean endLast = possitionInRoute[end]==route2.size()-1;
+			if(!(startFirst || startLast) || !(endFirst || endLast))
+				continue;
+			if(route1.getDemand()+route2.getDemand()>description.capacity)
+				continue;
+
+			//same cases as the library generator: a station in both positions counts as the first one
+			if(startFirst && endFirst) {
+				route1.flip();
+				append(route1, route2);
+			}
+			else if(startFirst) {
+				append(route2, route1);
+			}
+			else if(endFirst) {
+				append(route1, route2);
+			}
+			else {
+				route2.flip();
+				append(route1, route2);
+			}
+			
+			for(int i=0,size=route1.size(); i<size; i++) {
+				int s = route1.get(i);
+				routeAffiliation[s] = r1;
+				possitionInRoute[s] = i;
+			}
+			for(int i=0,size=route2.size(); i<size; i++) {
+				int s = route2.get(i);
+				routeAffiliation[s] = r2;
+				possitionInRoute[s] = i;
+			}
+		}
+
+		solution.removeEmptyRoutes();
+		//routes were changed after being added
+		solution.setLength(RoutingUtility.getTotalLengthOf(solution.routes));
+		
+		return solution;
+	}
+
+	/**
+	 * Appends all stations of the second route to the first one leaving the second route empty.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static void append(DemandRoute route, DemandRoute other) {
+		for(int i=0,size=other.size(); i<size; i++) {
+			route.add(other.get(i));
+		}
+		other.removeAll();
+	}
+	
+	/**
+	 * Returns the packed savings of all customer pairs sorted from the largest saving to the smallest.
+	 */
+	static long[] calculateSavings(CVRPDescription description) {
+		int dimension = description.dimension;
+		double[][] distance = description.distance;
+		
+		//offset of the first pair of every row in the upper triangle
+		long[] rowOffset = new long[dimension+1];
+		for(int i=1; i<dimension; i++) {
+			rowOffset[i+1] = rowOffset[i]+(dimension-1-i);
+		}
+		long pairCount = rowOffset[dimension];
+		if(pairCount>Integer.MAX_VALUE-8)
+			throw new IllegalArgumentException("Too many customer pairs: "+pairCount);
+		
+		long[] savings = new long[(int)pairCount];
+		IntStream rows = IntStream.range(1, dimension);
+		if(dimension>=PARALLEL_THRESHOLD)
+			rows = rows.parallel();
+		rows.forEach(i -> {
+			int index = (int) rowOffset[i];
+			for(int j=i+1;j<dimension;j++) {
+				double saveValue = distance[0][i]+distance[j][0]-distance[i][j];
+				savings[index++] = pack(saveValue, i, j);
+			}
+		});
+		
+		if(dimension>=PARALLEL_THRESHOLD)
+			Arrays.parallelSort(savings);
+		else
+			Arrays.sort(savings);
+		
+		//runs of equal floats are in pair order, mostly they are equal savings and are left as they are
+		int runStart = 0;
+		for(int k=1; k<=savings.length; k++) {
+			if(k<savings.length && (savings[k]>>>32)==(savings[runStart]>>>32))
+				continue;
+			if(k-runStart>1)
+				sortExact(savings, runStart, k, distance);
+			runStart = k;
+		}
+		return savings;
+	}
+
+	/**
+	 * Stable insertion sort of the packed savings from index from to index to (exclusive) by their exact value, 
+	 * largest first.
+	 */
+	private static void sortExact(long[] savings, int from, int to, double[][] distance) {
+		for(int k=from+1; k<to; k++) {
+			long packed = savings[k];
+			double saving = saving(distance, packed);
+			int m = k-1;
+			while(m>=from && saving(distance, savings[m])<saving) {
+				savings[m+1] = savings[m];
+				m--;
+			}
+			savings[m+1] = packed;
+		}
+	}
+
+	private static double saving(double[][] distance, long packed) {
+		int pair = (int) packed;
+		int i = pair>>>16;
+		int j = pair & 0xffff;
+		return distance[0][i]+distance[j][0]-distance[i][j];
+	}
+
+	/**
+	 * Packs the negated saving into the high bits (ordered like a signed int) and the pair into the low bits.
+	 */
+	private static long pack(double saving, int start, int end) {
+		int bits = Float.floatToIntBits((float) -saving);
+		bits ^= (bits >> 31) & 0x7fffffff;
+		return (((long) bits)<<32) | (((long)(start<<16 | end)) & 0xffffffffL);
+	}
+
+}
@@ -0,0 +1,57 @@
+package common.construction;
+
+import java.util.Arrays;
+
+import common.RouteOptimizer;
+import heuristic.routing.DemandRoute;
+import heuristic.routing.ImplicitLoopDemandRoute;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+import heuristic.routing.cvrp.ICVRPSolutionGenerator;
+
+/**
+ * Sweep construction: customers are ordered by their polar angle around the depot 
+ * and assigned to the current route until its capacity would be exceeded. </br>
+ * Every finished route is re-optimized.
+ */
+public class SweepSolutionGenerator implements ICVRPSolutionGenerator{
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public DemandRoutesSolution generateImplicitRoutes(CVRPDescription description) {
+		int dimension = description.dimension;
+		int[] depot = description.locations[0];
+		
+		//customers packed with their angle so a primitive sort orders them
+		long[] order = new long[dimension-1];
+		for(int i=1; i<dimension; i++) {
+			int[] location = description.locations[i];
+			double angle = Math.atan2(location[1]-depot[1], location[0]-depot[0]);
+			int bits = Float.floatToIntBits((float) angle);
+			bits ^= (bits >> 31) & 0x7fffffff;
+			order[i-1] = (((long) bits)<<32) | i;
+		}
+		Arrays.sort(order);
+		
+		DemandRoutesSolution solution = new DemandRoutesSolution();
+		DemandRoute route = new ImplicitLoopDemandRoute(description.distance, description.demand);
+		for(long packed:order) {
+			int station = (int) packed;
+			if(description.demand[station]>description.capacity)
+				throw new IllegalArgumentException("Customer demand exceeds the vehicle capacity");
+			if(route.size()>0 && route.getDemand()+description.demand[station]>description.capacity) {
+				RouteOptimizer.optimizeRoute(route);
+				solution.add(route);
+				route = new ImplicitLoopDemandRoute(description.distance, description.demand);
+			}
+			route.add(station);
+		}
+		if(route.size()>0) {
+			RouteOptimizer.optimizeRoute(route);
+			solution.add(route);
+		}
+		
+		return solution;
+	}
+
+}
@@ -0,0 +1,104 @@
+package common.fingerprint;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import heuristic.routing.DemandRoute;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * Zobrist style hash of the customer to route assignment of a solution. </br>
+ * Every customer has a random 64 bit key, a route hashes to the mixed XOR of its customer keys 
+ * and a solution to the XOR of its route hashes. The hash does not depend on the order of the customers
+ * within a route (it is re-optimized anyway) or on the order of the routes, and empty routes hash to 0,
+ * so a move only changes the hashes of the routes it touches (see {@link #update}).
+ */
+public final class Fingerprint {
+
+	private Fingerprint() {}
+
+	/**
+	 * Returns the fingerprint of the solution, stored for a {@link FingerprintedSolution} and calculated otherwise.
+	 */
+	public static long of(DemandRoutesSolution solution) {
+		if(solution instanceof FingerprintedSolution)
+			return ((FingerprintedSolution)solution).getFingerprint();
+		return calculate(solution.routes);
+	}
+
+	@SuppressWarnings("rawtypes")
+	public static long calculate(List<DemandRoute> routes) {
+		long fingerprint = 0;
+		for(DemandRoute route:routes) {
+			fingerprint ^= ofRoute(route);
+		}
+		return fingerprint;
+	}
+
+	@SuppressWarnings("rawtypes")
+	public static long ofRoute(DemandRoute route) {
+		return ofRoute(route.getArray(), route.size());
+	}
+
+	public static long ofRoute(int[] stations, int size) {
+		if(size==0)
+			return 0;
+		long code = 0;
+		for(int i=0; i<size; i++) {
+			code ^= key(stations[i]);
+		}
+		return mix(code);
+	}
+
+	/**
+	 * Returns the fingerprint after replacing a route with the given hash by one with the other hash.
+	 */
+	public static long update(long fingerprint, long removedRoute, long addedRoute) {
+		return fingerprint^removedRoute^addedRoute;
+	}
+
+	/**
+	 * Does the list hold a solution with the same fingerprint.
+	 */
+	public static boolean contains(List<DemandRoutesSolution> solutions, long fingerprint) {
+		for(int i=0,size=solutions.size(); i<size; i++) {
+			if(of(solutions.get(i))==fingerprint)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes every solution whose fingerprint equals that of an earlier one, keeping the list order. </br>
+	 * Returns the number of removed solutions.
+	 */
+	public static int removeDuplicates(List<DemandRoutesSolution> solutions) {
+		Set<Long> fingerprints = new HashSet<>();
+		int size = solutions.size();
+		int kept = 0;
+		for(int i=0; i<size; i++) {
+			DemandRoutesSolution solution = solutions.get(i);
+			if(fingerprints.add(Long.valueOf(of(solution))))
+				solutions.set(kept++, solution);
+		}
+		solutions.subList(kept, size).clear();
+		return size-kept;
+	}
+
+	private static long key(int station) {
+		return mix((station+1)*0x9E3779B97F4A7C15L);
+	}
+
+	/**
+	 * MurmurHash3 finalizer, maps 0 to 0.
+	 */
+	private static long mix(long value) {
+		value ^= value>>>33;
+		value *= 0xFF51AFD7ED558CCDL;
+		value ^= value>>>33;
+		value *= 0xC4CEB9FE1A85EC53L;
+		value ^= value>>>33;
+		return value;
+	}
+}
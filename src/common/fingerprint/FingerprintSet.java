@@ -0,0 +1,55 @@
+package common.fingerprint;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded set of fingerprints shared by the threads of a run. </br>
+ * Fingerprints are stored direct mapped, a new fingerprint replaces the one in its slot,
+ * so the set forgets old entries instead of growing. Forgetting only costs a repeated exploration.
+ */
+public final class FingerprintSet {
+
+	private final AtomicLongArray table;
+	private final int mask;
+
+	/**
+	 * @param capacity - number of slots, rounded up to a power of two
+	 */
+	public FingerprintSet(int capacity) {
+		if(capacity<=0)
+			throw new IllegalArgumentException("Capacity must be positive");
+		int size = Integer.highestOneBit(capacity);
+		if(size<capacity)
+			size <<= 1;
+		this.table = new AtomicLongArray(size);
+		this.mask = size-1;
+	}
+
+	/**
+	 * Adds the fingerprint and returns true if it was not in the set.
+	 */
+	public boolean add(long fingerprint) {
+		fingerprint = stored(fingerprint);
+		int slot = slot(fingerprint);
+		if(table.get(slot)==fingerprint)
+			return false;
+		table.set(slot, fingerprint);
+		return true;
+	}
+
+	public boolean contains(long fingerprint) {
+		fingerprint = stored(fingerprint);
+		return table.get(slot(fingerprint))==fingerprint;
+	}
+
+	private int slot(long fingerprint) {
+		return (int)(fingerprint^(fingerprint>>>32))&mask;
+	}
+
+	/**
+	 * 0 marks an empty slot, so it is stored as 1.
+	 */
+	private static long stored(long fingerprint) {
+		return fingerprint==0 ? 1 : fingerprint;
+	}
+}
@@ -0,0 +1,47 @@
+package common.fingerprint;
+
+import java.util.List;
+
+import heuristic.routing.DemandRoute;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * Solution which carries its {@link Fingerprint}, kept up to date by adding, removing and copying routes. </br>
+ * Its routes must not be changed in place; neighbors share routes with their parent anyway (see CandidateMove).
+ * A clone is a plain DemandRoutesSolution whose fingerprint is calculated when needed.
+ */
+public class FingerprintedSolution extends DemandRoutesSolution {
+
+	private long fingerprint;
+
+	@SuppressWarnings("rawtypes")
+	public FingerprintedSolution(List<DemandRoute> routes, long fingerprint) {
+		super(routes);
+		this.fingerprint = fingerprint;
+	}
+
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public void add(DemandRoute route) {
+		super.add(route);
+		fingerprint ^= Fingerprint.ofRoute(route);
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public void remove(DemandRoute route) {
+		if(routes.contains(route))
+			fingerprint ^= Fingerprint.ofRoute(route);
+		super.remove(route);
+	}
+
+	@Override
+	public void copy(DemandRoutesSolution other) {
+		super.copy(other);
+		fingerprint = Fingerprint.of(other);
+	}
+}
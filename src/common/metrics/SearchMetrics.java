@@ -0,0 +1,142 @@
+package common.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a single optimization run, safe to update from the POP-VND executor and neighborhood pools. </br>
+ * Hot loops keep plain local counts and add them once per neighborhood (see {@link #addEnumeration}), 
+ * so collecting costs a few adder updates per neighborhood. Runs without metrics pass null instead.
+ */
+public final class SearchMetrics {
+	
+	private final LongAdder candidates = new LongAdder();
+	private final LongAdder capacityRejections = new LongAdder();
+	private final LongAdder routeOptimizations = new LongAdder();
+	private final LongAdder routeOptimizationNanos = new LongAdder();
+	private final LongAdder clones = new LongAdder();
+	private final LongAdder restarts = new LongAdder();
+	private final LongAdder iterations = new LongAdder();
+	private final LongAdder populationTurnover = new LongAdder();
+	private final ConcurrentHashMap<String, LongAdder> acceptances = new ConcurrentHashMap<>();
+
+	/**
+	 * Adds the counts of one neighborhood enumeration.
+	 */
+	public void addEnumeration(long candidateCount, long capacityRejectionCount, long routeOptimizationCount, 
+			long routeOptimizationTime) {
+		candidates.add(candidateCount);
+		capacityRejections.add(capacityRejectionCount);
+		routeOptimizations.add(routeOptimizationCount);
+		routeOptimizationNanos.add(routeOptimizationTime);
+	}
+
+	public void addAcceptances(String neighborhood, long count) {
+		if(count>0)
+			acceptances.computeIfAbsent(neighborhood, n -> new LongAdder()).add(count);
+	}
+
+	public void addClones(long count) {
+		clones.add(count);
+	}
+
+	/**
+	 * Counts an iteration of the search loop. 
+	 * @param restart - did it restart the neighborhood sequence (k = 0)
+	 * @param turnover - number of population members replaced
+	 */
+	public void addIteration(boolean restart, int turnover) {
+		iterations.increment();
+		if(restart)
+			restarts.increment();
+		populationTurnover.add(turnover);
+	}
+
+	public long getCandidates() {
+		return candidates.sum();
+	}
+
+	public long getCapacityRejections() {
+		return capacityRejections.sum();
+	}
+
+	public long getRouteOptimizations() {
+		return routeOptimizations.sum();
+	}
+
+	public double getRouteOptimizationMillis() {
+		return routeOptimizationNanos.sum()*1e-6;
+	}
+
+	public long getClones() {
+		return clones.sum();
+	}
+
+	public long getRestarts() {
+		return restarts.sum();
+	}
+
+	public long getIterations() {
+		return iterations.sum();
+	}
+
+	public long getPopulationTurnover() {
+		return populationTurnover.sum();
+	}
+
+	/**
+	 * Returns the acceptances per neighborhood ordered by neighborhood name.
+	 */
+	public Map<String, Long> getAcceptances() {
+		Map<String, Long> result = new TreeMap<>();
+		acceptances.forEach((name, count) -> result.put(name, Long.valueOf(count.sum())));
+		return result;
+	}
+
+	//================================================================================================
+
+	public String toJson() {
+		StringBuilder json = new StringBuilder();
+		json.append("{");
+		json.append("\"candidates\":").append(getCandidates()).append(",");
+		json.append("\"capacityRejections\":").append(getCapacityRejections()).append(",");
+		json.append("\"routeOptimizations\":").append(getRouteOptimizations()).append(",");
+		json.append("\"routeOptimizationMillis\":").append(getRouteOptimizationMillis()).append(",");
+		json.append("\"clones\":").append(getClones()).append(",");
+		json.append("\"iterations\":").append(getIterations()).append(",");
+		json.append("\"restarts\":").append(getRestarts()).append(",");
+		json.append("\"populationTurnover\":").append(getPopulationTurnover()).append(",");
+		json.append("\"acceptances\":{");
+		boolean first = true;
+		for(Map.Entry<String, Long> entry:getAcceptances().entrySet()) {
+			if(!first)
+				json.append(",");
+			json.append("\"").append(entry.getKey()).append("\":").append(entry.getValue());
+			first = false;
+		}
+		json.append("}}");
+		return json.toString();
+	}
+
+	/**
+	 * Column names of {@link #toCsvRow()}, acceptances are summed over all neighborhoods.
+	 */
+	public static String getCsvHeader() {
+		return "candidates,capacityRejections,routeOptimizations,routeOptimizationMillis,clones,iterations,restarts,populationTurnover,acceptances";
+	}
+
+	public String toCsvRow() {
+		long acceptanceSum = 0;
+		for(Long count:getAcceptances().values())
+			acceptanceSum+=count.longValue();
+		return getCandidates()+","+getCapacityRejections()+","+getRouteOptimizations()+","+getRouteOptimizationMillis()+","
+				+getClones()+","+getIterations()+","+getRestarts()+","+getPopulationTurnover()+","+acceptanceSum;
+	}
+
+	@Override
+	public String toString() {
+		return "Search metrics: "+toJson();
+	}
+}
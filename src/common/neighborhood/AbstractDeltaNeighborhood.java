@@ -0,0 +1,91 @@
+package common.neighborhood;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import common.RouteCache;
+import common.anytime.Budget;
+import common.fingerprint.Fingerprint;
+import common.metrics.SearchMetrics;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+import optimization.solution.neighborhood.INeighborhood;
+
+/**
+ * VND neighborhood which scores candidates with a {@link MoveEvaluator} 
+ * and only builds a neighbor once it passes the acceptance test. </br>
+ * Given a {@link ForkJoinPool} the candidates are enumerated in parallel, 
+ * neighbors are still returned in enumeration order. </br>
+ * Given {@link CandidateLists} swap and relocate moves are restricted to granular ones. </br>
+ * Given a {@link Budget} the neighborhood is cut short once it is exhausted. </br>
+ * Given {@link SearchMetrics} enumeration counts, acceptances and built neighbors are recorded. </br>
+ * Given a {@link PairMemory} (see {@link #setPairMemory}) route pairs whose best move does not improve are skipped,
+ * so after an improvement only the pairs of the two changed routes are evaluated again.
+ */
+public abstract class AbstractDeltaNeighborhood implements INeighborhood<DemandRoutesSolution> {
+
+	private final MoveEnumerator enumerator;
+	private final CandidateLists candidateLists;
+	private final SearchMetrics metrics;
+	private final Function<DemandRoutesSolution,Predicate<DemandRoutesSolution>> neighborAcceptanceTest;
+
+	public AbstractDeltaNeighborhood(CVRPDescription description, MoveType moveType,
+			Function<DemandRoutesSolution,Predicate<DemandRoutesSolution>> neighborAcceptanceTest, 
+			ForkJoinPool pool, CandidateLists candidateLists, Budget budget, SearchMetrics metrics) {
+		this.enumerator = new MoveEnumerator(description, moveType, pool, budget, metrics);
+		this.candidateLists = moveType.isGranular() ? candidateLists : null;
+		this.metrics = metrics;
+		this.neighborAcceptanceTest = neighborAcceptanceTest;
+	}
+
+	/**
+	 * @param memory - route pair memory kept between iterations (null to look at every pair)
+	 */
+	public void setPairMemory(PairMemory memory) {
+		enumerator.setPairMemory(memory);
+	}
+
+	/**
+	 * @param cache - solved routes of the run (null to solve every changed route)
+	 */
+	public void setRouteCache(RouteCache cache) {
+		enumerator.setRouteCache(cache);
+	}
+
+	@Override
+	public void neighborhood(DemandRoutesSolution element, List<DemandRoutesSolution> neighborhood) {
+		Predicate<DemandRoutesSolution> acceptanceTest = neighborAcceptanceTest.apply(element);
+		if(candidateLists==null) {
+			neighborhood(element, null, acceptanceTest, neighborhood);
+			return;
+		}
+
+		int kFrom = 0;
+		int kTo = candidateLists.getK();
+		while(kTo!=-1) {
+			if(neighborhood(element, candidateLists.granularity(element, kFrom, kTo), acceptanceTest, neighborhood))
+				return;
+			kFrom = kTo;
+			kTo = candidateLists.widen(kTo);
+		}
+	}
+	
+	/**
+	 * Returns true if any move passed the acceptance test
+	 */
+	private boolean neighborhood(DemandRoutesSolution element, CandidateLists.Granularity granularity,
+			Predicate<DemandRoutesSolution> acceptanceTest, List<DemandRoutesSolution> neighborhood) {
+		List<CandidateMove> candidates = enumerator.collect(element, granularity, acceptanceTest);
+		long fingerprint = candidates.isEmpty() ? 0 : Fingerprint.of(element);
+		for(CandidateMove candidate:candidates) {
+			neighborhood.add(candidate.apply(element, fingerprint));
+		}
+		if(metrics!=null) {
+			metrics.addAcceptances(getClass().getSimpleName(), candidates.size());
+			metrics.addClones(candidates.size());
+		}
+		return !candidates.isEmpty();
+	}
+}
@@ -0,0 +1,226 @@
+package common.neighborhood;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+import common.RouteCache;
+import common.anytime.Budget;
+import common.fingerprint.Fingerprint;
+import common.fingerprint.FingerprintSet;
+import common.metrics.SearchMetrics;
+import common.popvnd.NeighborQuota;
+import common.random.RandomStreams;
+import heuristic.popvnd.neighborAcceptanceTest.NeighborAcceptanceTest;
+import heuristic.popvnd.neighborhood.INeighborhood_V2;
+import heuristic.popvnd.neighborhoodMaintenance.FirstMMaintenance;
+import heuristic.popvnd.neighborhoodMaintenance.NeighborhoodMaintenance;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * POP-VND neighborhood which scores candidates with a {@link MoveEvaluator} 
+ * and only builds a neighbor once it passes the acceptance test. </br>
+ * Given a {@link ForkJoinPool} the candidates of a single population member are enumerated in parallel
+ * and the accepted moves are handed to the neighborhood maintenance afterwards, in enumeration order.
+ * A {@link FirstMMaintenance} stops after its first M neighbors, so it is always enumerated on the calling thread
+ * instead of solving the routes of the whole neighborhood first. </br>
+ * Given {@link CandidateLists} swap and relocate moves are restricted to granular ones. </br>
+ * Given a {@link Budget} the neighborhood is cut short once it is exhausted. </br>
+ * Given {@link SearchMetrics} enumeration counts, acceptances and built neighbors are recorded. </br>
+ * With fingerprinting (see {@link #setFingerprinting}) moves leading to a neighbor already in the list are not built 
+ * and members whose neighborhood was already fully generated are skipped, a member whose generation was cut short
+ * by the stop test, the quota or the budget is looked at again. </br>
+ * Given a {@link NeighborQuota} (see {@link #setQuota}) the neighborhood stops once all members together found enough neighbors. </br>
+ * Given a {@link PairMemory} (see {@link #setPairMemory}) route pairs whose best move can not pass the acceptance test are skipped. </br>
+ * Given {@link RandomStreams} (see {@link #setRandomStreams}) the neighborhood of a member draws from the member's stream.
+ */
+public abstract class AbstractDeltaNeighborhood_V2 extends INeighborhood_V2<DemandRoutesSolution> {
+
+	//Outcomes of enumerating one granularity
+	private static final int NONE_ACCEPTED = 0;
+	private static final int ACCEPTED = 1;
+	private static final int STOPPED = 2; //cut short by the stop test, the quota or the budget
+
+	private final MoveEnumerator enumerator;
+	private final CandidateLists candidateLists;
+	private final SearchMetrics metrics;
+	private final boolean stopsEarly;
+	private boolean deduplicate = false;
+	private FingerprintSet visited = null;
+	private NeighborQuota quota = null;
+	private RandomStreams streams = null;
+
+	public AbstractDeltaNeighborhood_V2(CVRPDescription description, MoveType moveType,
+			NeighborAcceptanceTest<DemandRoutesSolution> neighborAcceptanceTest,
+			NeighborhoodMaintenance<DemandRoutesSolution> neighborhoodGenerationStopTest,
+			ForkJoinPool pool, CandidateLists candidateLists, Budget budget, SearchMetrics metrics) {
+		super(neighborAcceptanceTest, neighborhoodGenerationStopTest);
+		this.enumerator = new MoveEnumerator(description, moveType, pool, budget, metrics);
+		this.candidateLists = moveType.isGranular() ? candidateLists : null;
+		this.metrics = metrics;
+		this.stopsEarly = neighborhoodGenerationStopTest instanceof FirstMMaintenance;
+	}
+
+	/**
+	 * @param deduplicate - should moves leading to a neighbor already in the neighbor list be skipped
+	 * @param visited - fingerprints of the members whose neighborhood was already generated (null to always generate it)
+	 */
+	public void setFingerprinting(boolean deduplicate, FingerprintSet visited) {
+		this.deduplicate = deduplicate;
+		this.visited = visited;
+	}
+
+	/**
+	 * @param quota - neighbors needed by the iteration over all members, shared with the other members (null for no limit)
+	 */
+	public void setQuota(NeighborQuota quota) {
+		this.quota = quota;
+	}
+
+	/**
+	 * @param memory - route pair memory shared by all members (null to look at every pair)
+	 */
+	public void setPairMemory(PairMemory memory) {
+		enumerator.setPairMemory(memory);
+	}
+
+	/**
+	 * @param cache - solved routes of the run (null to solve every changed route)
+	 */
+	public void setRouteCache(RouteCache cache) {
+		enumerator.setRouteCache(cache);
+	}
+
+	/**
+	 * @param streams - random streams of the run, bound to the thread generating a member (null to keep the thread's random)
+	 */
+	public void setRandomStreams(RandomStreams streams) {
+		this.streams = streams;
+	}
+
+	@Override
+	public void neighborhood(DemandRoutesSolution[] population, int id, List<DemandRoutesSolution> neighbors) {
+		if(streams==null) {
+			memberNeighborhood(population, id, neighbors);
+			return;
+		}
+		Random previous = RandomStreams.bind(streams.getMemberStream(id));
+		try {
+			memberNeighborhood(population, id, neighbors);
+		}
+		finally {
+			RandomStreams.bind(previous);
+		}
+	}
+
+	private void memberNeighborhood(DemandRoutesSolution[] population, int id, List<DemandRoutesSolution> neighbors) {
+		neighborAcceptanceTest.startingNegihborhoodGeneration(population);
+		neighborhoodGenerationStopTest.startingNegihborhoodGeneration(population);
+
+		DemandRoutesSolution element = population[id];
+		long fingerprint = Fingerprint.of(element);
+		if(visited!=null && visited.contains(fingerprint))
+			return;
+		
+		int outcome;
+		if(candidateLists==null) {
+			outcome = neighborhood(population, element, fingerprint, null, neighbors);
+		}
+		else {
+			outcome = NONE_ACCEPTED;
+			int kFrom = 0;
+			int kTo = candidateLists.getK();
+			while(kTo!=-1 && outcome==NONE_ACCEPTED) {
+				outcome = isQuotaReached() ? STOPPED 
+						: neighborhood(population, element, fingerprint, candidateLists.granularity(element, kFrom, kTo), neighbors);
+				kFrom = kTo;
+				kTo = candidateLists.widen(kTo);
+			}
+		}
+		//only a complete generation would be repeated by generating the member again
+		if(visited!=null && outcome!=STOPPED)
+			visited.add(fingerprint);
+	}
+
+	/**
+	 * Returns whether a move passed the acceptance test or the enumeration was cut short.
+	 */
+	private int neighborhood(DemandRoutesSolution[] population, DemandRoutesSolution element, long fingerprint,
+			CandidateLists.Granularity granularity, List<DemandRoutesSolution> neighbors) {
+		Predicate<DemandRoutesSolution> acceptanceTest = probe -> neighborAcceptanceTest.shouldAcceptTest(population, element, probe);
+		if(!enumerator.isParallel() || stopsEarly) {
+			int[] counts = new int[] {0,0,0};
+			enumerator.enumerate(element, granularity, acceptanceTest, evaluator -> {
+				if(isQuotaReached()) {
+					counts[2] = 1;
+					return true;
+				}
+				if(acceptanceTest.test(evaluator.probe(element))) {
+					counts[0]++;
+					if(deduplicate && Fingerprint.contains(neighbors, evaluator.fingerprint(element, fingerprint)))
+						return false;
+					counts[1]++;
+					DemandRoutesSolution neighbor = evaluator.apply(element, fingerprint);
+					if(neighborhoodGenerationStopTest.addNeighbor(population, element, neighbor, neighbors) | addToQuota()) {
+						counts[2] = 1;
+						return true;
+					}
+				}
+				return false;
+			});
+			record(counts[0], counts[1]);
+			return outcome(counts[0]>0, counts[2]==1);
+		}
+
+		List<CandidateMove> candidates = enumerator.collect(element, granularity, acceptanceTest);
+		int applied = 0;
+		boolean stopped = false;
+		for(CandidateMove candidate:candidates) {
+			if(isQuotaReached()) {
+				stopped = true;
+				break;
+			}
+			if(deduplicate && Fingerprint.contains(neighbors, candidate.fingerprint(element, fingerprint)))
+				continue;
+			applied++;
+			if(neighborhoodGenerationStopTest.addNeighbor(population, element, candidate.apply(element, fingerprint), neighbors) | addToQuota()) {
+				stopped = true;
+				break;
+			}
+		}
+		record(candidates.size(), applied);
+		return outcome(!candidates.isEmpty(), stopped);
+	}
+
+	/**
+	 * An enumeration which saw the budget exhausted may have left out units, so it counts as cut short.
+	 */
+	private int outcome(boolean accepted, boolean stopped) {
+		if(stopped || enumerator.isExhausted())
+			return STOPPED;
+		return accepted ? ACCEPTED : NONE_ACCEPTED;
+	}
+
+	private boolean isQuotaReached() {
+		return quota!=null && quota.isReached();
+	}
+
+	/**
+	 * Counts a neighbor towards the quota, returns true if it is reached.
+	 */
+	private boolean addToQuota() {
+		return quota!=null && quota.add();
+	}
+
+	/**
+	 * Adds the accepted moves and the neighbors built from them to the metrics.
+	 */
+	private void record(int accepted, int built) {
+		if(metrics!=null) {
+			metrics.addAcceptances(getClass().getSimpleName(), accepted);
+			metrics.addClones(built);
+		}
+	}
+}
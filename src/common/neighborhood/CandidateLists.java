@@ -0,0 +1,168 @@
+package common.neighborhood;
+
+import common.DistanceMatrix;
+import heuristic.routing.DemandRoute;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * Granular neighborhood support: for every customer the list of its nearest customers. </br>
+ * Swap and relocate moves are only evaluated when they bring a customer into a route 
+ * holding one of its k nearest customers. If no move is accepted with k, 
+ * the neighborhood may widen k (doubling it) up to the full neighborhood.
+ */
+public final class CandidateLists {
+
+	private final int k;
+	private final boolean widen;
+	private final int listSize;
+	private final int[][] nearest;
+
+	/**
+	 * @param k - number of nearest customers a move has to bring a customer close to
+	 * @param listSize - number of nearest customers stored per customer (widening beyond it uses the full neighborhood)
+	 * @param widen - should k be widened when no move is accepted
+	 */
+	public CandidateLists(CVRPDescription description, int k, int listSize, boolean widen) {
+		this(DistanceMatrix.wrap(description.distance), k, listSize, widen);
+	}
+
+	/**
+	 * @param k - number of nearest customers a move has to bring a customer close to
+	 * @param listSize - number of nearest customers stored per customer (widening beyond it uses the full neighborhood)
+	 * @param widen - should k be widened when no move is accepted
+	 */
+	public CandidateLists(DistanceMatrix distances, int k, int listSize, boolean widen) {
+		if(k<=0 || listSize<k)
+			throw new IllegalArgumentException("Candidate list size must be positive and at least k");
+		
+		this.k = k;
+		this.widen = widen;
+		int dimension = distances.getDimension();
+		this.listSize = Math.min(listSize, Math.max(dimension-2, 0));
+		this.nearest = new int[dimension][];
+		
+		int[] best = new int[this.listSize];
+		double[] bestDistance = new double[this.listSize];
+		for(int i=1; i<dimension; i++) {
+			int count = 0;
+			for(int j=1; j<dimension; j++) {
+				if(i==j)
+					continue;
+				double distance = distances.get(i, j);
+				if(count==this.listSize && distance>=bestDistance[count-1])
+					continue;
+				
+				//insert into the sorted list
+				int position = count==this.listSize ? count-1 : count++;
+				while(position>0 && bestDistance[position-1]>distance) {
+					best[position] = best[position-1];
+					bestDistance[position] = bestDistance[position-1];
+					position--;
+				}
+				best[position] = j;
+				bestDistance[position] = distance;
+			}
+			nearest[i] = new int[count];
+			System.arraycopy(best, 0, nearest[i], 0, count);
+		}
+	}
+	
+	public int getK() {
+		return k;
+	}
+	
+	public boolean isWidening() {
+		return widen;
+	}
+	
+	public int getListSize() {
+		return listSize;
+	}
+	
+	/**
+	 * Returns the stored nearest customers of the given customer, closest first.
+	 */
+	public int[] getNearest(int station) {
+		return nearest[station];
+	}
+	
+	/**
+	 * Returns the k to use after no move was accepted with the given one, 
+	 * or -1 if the full neighborhood was already used or widening is disabled. </br>
+	 * Once the doubled k exceeds the stored list size the full neighborhood is used.
+	 */
+	public int widen(int current) {
+		if(!widen || current>listSize)
+			return -1;
+		int next = current*2;
+		return next>listSize ? Integer.MAX_VALUE : next;
+	}
+	
+	/**
+	 * Returns a filter for the given solution allowing moves which are granular for the first 
+	 * kTo nearest customers but were not for the first kFrom. </br>
+	 * A kTo above the stored list size allows all moves.
+	 */
+	@SuppressWarnings("rawtypes")
+	public Granularity granularity(DemandRoutesSolution element, int kFrom, int kTo) {
+		int[] routeOf = new int[nearest.length];
+		for(int r=0,size=element.routes.size(); r<size; r++) {
+			DemandRoute route = element.get(r);
+			for(int i=0,routeSize=route.size(); i<routeSize; i++) {
+				routeOf[route.get(i)] = r;
+			}
+		}
+		return new Granularity(this, routeOf, kFrom, kTo);
+	}
+
+	//================================================================================================
+	
+	/**
+	 * Move filter of a single neighborhood enumeration.
+	 */
+	public static final class Granularity{
+		
+		private final CandidateLists lists;
+		private final int[] routeOf;
+		private final int kFrom;
+		private final int kTo;
+		
+		private Granularity(CandidateLists lists, int[] routeOf, int kFrom, int kTo) {
+			this.lists = lists;
+			this.routeOf = routeOf;
+			this.kFrom = kFrom;
+			this.kTo = kTo;
+		}
+		
+		public boolean allowsRelocate(int station, int toRoute) {
+			return near(station, toRoute, -1, kTo) && !near(station, toRoute, -1, kFrom);
+		}
+
+		public boolean allowsSwap(int station1, int route1, int station2, int route2) {
+			return swapNear(station1, route1, station2, route2, kTo) && !swapNear(station1, route1, station2, route2, kFrom);
+		}
+		
+		private boolean swapNear(int station1, int route1, int station2, int route2, int k) {
+			return near(station1, route2, station2, k) || near(station2, route1, station1, k);
+		}
+
+		/**
+		 * Is one of the k nearest customers of the station (other than except) in the given route. 
+		 */
+		private boolean near(int station, int route, int except, int k) {
+			if(k<=0)
+				return false;
+			if(k>lists.listSize)
+				return true;
+			
+			int[] nearest = lists.nearest[station];
+			for(int i=0; i<k; i++) {
+				int other = nearest[i];
+				if(other!=except && routeOf[other]==route)
+					return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package common.neighborhood;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import common.fingerprint.Fingerprint;
+import common.fingerprint.FingerprintedSolution;
+import heuristic.routing.DemandRoute;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * An evaluated two route move detached from the {@link MoveEvaluator} buffers. </br>
+ * Holds the re-optimized station orders of both changed routes so the neighbor can be built later. </br>
+ * Neighbors are built copy on write: they share every unchanged route with the element 
+ * and only the two changed routes are copied, see {@link #apply(DemandRoutesSolution)}.
+ */
+public final class CandidateMove {
+
+	private final int firstRoute;
+	private final int secondRoute;
+	private final int[] firstStations;
+	private final int[] secondStations;
+	private final double firstLength;
+	private final double secondLength;
+	private final double delta;
+
+	public CandidateMove(int firstRoute, int[] firstStations, double firstLength, 
+			int secondRoute, int[] secondStations, double secondLength, double delta) {
+		this.firstRoute = firstRoute;
+		this.firstStations = firstStations;
+		this.firstLength = firstLength;
+		this.secondRoute = secondRoute;
+		this.secondStations = secondStations;
+		this.secondLength = secondLength;
+		this.delta = delta;
+	}
+
+	/**
+	 * Builds the neighbor produced by applying this move to the given element. </br>
+	 * Only the route list and the two changed routes are copied, all other routes are the element's own objects.
+	 * This is safe as long as a route reachable from a neighbor is never changed in place:
+	 * POP-VND only builds new neighbors from its population and VND only overwrites its current solution
+	 * with the selected neighbor, which leaves shared routes as they are (a route copied onto itself).
+	 */
+	public DemandRoutesSolution apply(DemandRoutesSolution element) {
+		return apply(element, Fingerprint.of(element));
+	}
+
+	/**
+	 * Same as {@link #apply(DemandRoutesSolution)} given the fingerprint of the element, 
+	 * the neighbor's fingerprint is derived from it by rehashing the two changed routes only.
+	 */
+	@SuppressWarnings("rawtypes")
+	public FingerprintedSolution apply(DemandRoutesSolution element, long elementFingerprint) {
+		List<DemandRoute> routes = new ArrayList<>(element.routes);
+		
+		routes.set(firstRoute, copy(element.get(firstRoute), firstStations, firstLength));
+		routes.set(secondRoute, copy(element.get(secondRoute), secondStations, secondLength));
+		
+		FingerprintedSolution neighbor = new FingerprintedSolution(routes, fingerprint(element, elementFingerprint));
+		neighbor.length = element.length+delta;
+		return neighbor;
+	}
+
+	/**
+	 * Returns the fingerprint of the neighbor this move builds from the element, without building it.
+	 */
+	public long fingerprint(DemandRoutesSolution element, long elementFingerprint) {
+		long fingerprint = Fingerprint.update(elementFingerprint, 
+				Fingerprint.ofRoute(element.get(firstRoute)), Fingerprint.ofRoute(firstStations, firstStations.length));
+		return Fingerprint.update(fingerprint, 
+				Fingerprint.ofRoute(element.get(secondRoute)), Fingerprint.ofRoute(secondStations, secondStations.length));
+	}
+	
+	public double getDelta() {
+		return delta;
+	}
+
+	/**
+	 * Returns a new route of the same type holding the given stations.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static DemandRoute copy(DemandRoute route, int[] stations, double length) {
+		DemandRoute copy = route.clone();
+		copy.removeAll();
+		copy.addAll(stations);
+		copy.setLength(length);
+		return copy;
+	}
+}
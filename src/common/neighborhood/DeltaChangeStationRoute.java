@@ -0,0 +1,32 @@
+package common.neighborhood;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import common.anytime.Budget;
+import common.metrics.SearchMetrics;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * Same neighborhood as ChangeStationRoute built on {@link AbstractDeltaNeighborhood}.
+ */
+public final class DeltaChangeStationRoute extends AbstractDeltaNeighborhood {
+
+	public DeltaChangeStationRoute(CVRPDescription description,
+			Function<DemandRoutesSolution,Predicate<DemandRoutesSolution>> neighborAcceptanceTest) {
+		this(description, neighborAcceptanceTest, null);
+	}
+
+	public DeltaChangeStationRoute(CVRPDescription description,
+			Function<DemandRoutesSolution,Predicate<DemandRoutesSolution>> neighborAcceptanceTest, ForkJoinPool pool) {
+		this(description, neighborAcceptanceTest, pool, null, null, null);
+	}
+
+	public DeltaChangeStationRoute(CVRPDescription description,
+			Function<DemandRoutesSolution,Predicate<DemandRoutesSolution>> neighborAcceptanceTest, ForkJoinPool pool,
+			CandidateLists candidateLists, Budget budget, SearchMetrics metrics) {
+		super(description, MoveType.RELOCATE, neighborAcceptanceTest, pool, candidateLists, budget, metrics);
+	}
+}
@@ -0,0 +1,32 @@
+package common.neighborhood;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import common.anytime.Budget;
+import common.metrics.SearchMetrics;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * Same neighborhood as MergeRoutes built on {@link AbstractDeltaNeighborhood}.
+ */
+public final class DeltaMergeRoutes extends AbstractDeltaNeighborhood {
+
+	public DeltaMergeRoutes(CVRPDescription description,
+			Function<DemandRoutesSolution,Predicate<DemandRoutesSolution>> neighborAcceptanceTest) {
+		this(description, neighborAcceptanceTest, null);
+	}
+
+	public DeltaMergeRoutes(CVRPDescription description,
+			Function<DemandRoutesSolution,Predicate<DemandRoutesSolution>> neighborAcceptanceTest, ForkJoinPool pool) {
+		this(description, neighborAcceptanceTest, pool, null, null, null);
+	}
+
+	public DeltaMergeRoutes(CVRPDescription description,
+			Function<DemandRoutesSolution,Predicate<DemandRoutesSolution>> neighborAcceptanceTest, ForkJoinPool pool,
+			CandidateLists candidateLists, Budget budget, SearchMetrics metrics) {
+		super(description, MoveType.MERGE, neighborAcceptanceTest, pool, candidateLists, budget, metrics);
+	}
+}
@@ -0,0 +1,36 @@
+package common.neighborhood;
+
+import java.util.concurrent.ForkJoinPool;
+
+import common.anytime.Budget;
+import common.metrics.SearchMetrics;
+import heuristic.popvnd.neighborAcceptanceTest.NeighborAcceptanceTest;
+import heuristic.popvnd.neighborhoodMaintenance.NeighborhoodMaintenance;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * Same neighborhood as SwapStations_V2 built on {@link AbstractDeltaNeighborhood_V2}.
+ */
+public final class DeltaSwapStations_V2 extends AbstractDeltaNeighborhood_V2 {
+
+	public DeltaSwapStations_V2(CVRPDescription description,
+			NeighborAcceptanceTest<DemandRoutesSolution> neighborAcceptanceTest,
+			NeighborhoodMaintenance<DemandRoutesSolution> neighborhoodGenerationStopTest) {
+		this(description, neighborAcceptanceTest, neighborhoodGenerationStopTest, null);
+	}
+
+	public DeltaSwapStations_V2(CVRPDescription description,
+			NeighborAcceptanceTest<DemandRoutesSolution> neighborAcceptanceTest,
+			NeighborhoodMaintenance<DemandRoutesSolution> neighborhoodGenerationStopTest,
+			ForkJoinPool pool) {
+		this(description, neighborAcceptanceTest, neighborhoodGenerationStopTest, pool, null, null, null);
+	}
+
+	public DeltaSwapStations_V2(CVRPDescription description,
+			NeighborAcceptanceTest<DemandRoutesSolution> neighborAcceptanceTest,
+			NeighborhoodMaintenance<DemandRoutesSolution> neighborhoodGenerationStopTest,
+			ForkJoinPool pool, CandidateLists candidateLists, Budget budget, SearchMetrics metrics) {
+		super(description, MoveType.SWAP, neighborAcceptanceTest, neighborhoodGenerationStopTest, pool, candidateLists, budget, metrics);
+	}
+}
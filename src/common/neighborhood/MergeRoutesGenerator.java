@@ -0,0 +1,43 @@
+package common.neighborhood;
+
+import java.util.Random;
+
+import common.RouteOptimizer;
+import heuristic.routing.DemandRoute;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+import optimization.solution.neighborhood.INeighborGenerator;
+
+/**
+ * Same neighbor generator as MergeRouteNG but routes are re-optimized through {@link RouteOptimizer}.
+ */
+public final class MergeRoutesGenerator implements INeighborGenerator<DemandRoutesSolution> {
+	private final Random random;
+	private final CVRPDescription description;
+
+	public MergeRoutesGenerator(Random random, CVRPDescription description) {
+		this.random = random;
+		this.description = description;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	public void randomNeighbor(DemandRoutesSolution element, DemandRoutesSolution neighbor) {				
+		DemandRoute route1 = neighbor.getNonEmpty(random);
+		DemandRoute route2 = neighbor.getNonEmpty(random);
+								
+		if(route1==route2 || route1.getDemand()+route2.getDemand()>description.capacity) {
+			return;
+		}
+
+		double route1Length = route1.getLength();
+		double route2Length = route2.getLength();
+
+		route2.addAll(route1);
+		route1.removeAll();
+
+		RouteOptimizer.optimizeRoute(route2);
+		
+		neighbor.length += -route1Length-route2Length+route1.getLength()+route2.getLength();
+	}
+}
@@ -0,0 +1,12 @@
+package common.neighborhood;
+
+/**
+ * Receives every capacity feasible move right after it was scored by the {@link MoveEvaluator}.
+ */
+@FunctionalInterface
+public interface MoveConsumer {
+	/**
+	 * Returns true if the enumeration should stop
+	 */
+	public boolean accept(MoveEvaluator evaluator);
+}
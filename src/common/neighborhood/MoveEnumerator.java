@@ -0,0 +1,252 @@
+package common.neighborhood;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+import common.RouteCache;
+import common.anytime.Budget;
+import common.metrics.SearchMetrics;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * Enumerates the candidates of one {@link MoveType} for a solution. </br>
+ * With a {@link ForkJoinPool} the units of the solution are split into subtasks, 
+ * each collecting its accepted moves into its own buffer. 
+ * Buffers are joined in unit order so the result does not depend on scheduling. </br>
+ * With a {@link Budget} enumeration stops early, leaving out the remaining units, once it is exhausted. </br>
+ * With a {@link PairMemory} route pairs whose best move is known to fail the acceptance test are skipped,
+ * the memory is only used for the full neighborhood since granularity depends on the whole solution.
+ */
+public final class MoveEnumerator {
+
+	private static final int TASKS_PER_THREAD = 8;
+
+	private final CVRPDescription description;
+	private final MoveType moveType;
+	private final ForkJoinPool pool;
+	private final Budget budget;
+	private final SearchMetrics metrics;
+	private PairMemory memory = null;
+	private RouteCache cache = null;
+	
+	/**
+	 * @param pool - pool used to enumerate in parallel (null to enumerate on the calling thread)
+	 */
+	public MoveEnumerator(CVRPDescription description, MoveType moveType, ForkJoinPool pool) {
+		this(description, moveType, pool, null, null);
+	}
+	
+	/**
+	 * @param pool - pool used to enumerate in parallel (null to enumerate on the calling thread)
+	 * @param budget - enumeration stops once it is exhausted (null for no limit)
+	 * @param metrics - receives the enumeration counts (null to not collect them)
+	 */
+	public MoveEnumerator(CVRPDescription description, MoveType moveType, ForkJoinPool pool, Budget budget,
+			SearchMetrics metrics) {
+		this.description = description;
+		this.moveType = moveType;
+		this.pool = pool;
+		this.budget = budget;
+		this.metrics = metrics;
+	}
+	
+	public boolean isParallel() {
+		return pool!=null;
+	}
+	
+	public MoveType getMoveType() {
+		return moveType;
+	}
+	
+	/**
+	 * @param memory - memory of the route pairs shared by all enumerations of this move type (null to look at every pair)
+	 */
+	public void setPairMemory(PairMemory memory) {
+		this.memory = memory;
+	}
+	
+	/**
+	 * @param cache - solved routes shared by all enumerations of the run (null to solve every changed route)
+	 */
+	public void setRouteCache(RouteCache cache) {
+		this.cache = cache;
+	}
+	
+	/**
+	 * Passes every capacity feasible move allowed by the granularity (null allows all) to the consumer 
+	 * on the calling thread until it requests a stop.
+	 */
+	public void enumerate(DemandRoutesSolution element, CandidateLists.Granularity granularity, MoveConsumer consumer) {
+		enumerate(element, granularity, null, consumer);
+	}
+	
+	/**
+	 * Same as {@link #enumerate(DemandRoutesSolution, CandidateLists.Granularity, MoveConsumer)}, 
+	 * given the acceptance test of the consumer route pairs whose moves can not pass it are skipped (see {@link PairMemory}).
+	 */
+	public void enumerate(DemandRoutesSolution element, CandidateLists.Granularity granularity, 
+			Predicate<DemandRoutesSolution> probeTest, MoveConsumer consumer) {
+		MoveEvaluator evaluator = new MoveEvaluator(description.dimension, metrics!=null);
+		evaluator.setRouteCache(cache);
+		PairMemory.Pass pass = pass(element, granularity, probeTest);
+		evaluator.setPass(pass);
+		enumerate(element, granularity, evaluator, pass, consumer);
+		if(metrics!=null)
+			evaluator.drainTo(metrics);
+	}
+	
+	private void enumerate(DemandRoutesSolution element, CandidateLists.Granularity granularity, 
+			MoveEvaluator evaluator, PairMemory.Pass pass, MoveConsumer consumer) {
+		for(int cr=0,size=element.routes.size(); cr<size; cr++) {
+			if(pass!=null)
+				pass.startRoute(cr);
+			for(int x=0,width=moveType.width(element, cr); x<width; x++) {
+				if(isExhausted())
+					return;
+				if(moveType.enumerate(description, element, cr, x, granularity, evaluator, consumer))
+					return;
+			}
+			if(pass!=null)
+				pass.endRoute();
+		}
+	}
+	
+	/**
+	 * Returns all moves allowed by the granularity (null allows all) whose probe passes the test, in enumeration order. </br>
+	 * Enumerates in parallel if a pool was given.
+	 */
+	public List<CandidateMove> collect(DemandRoutesSolution element, CandidateLists.Granularity granularity, 
+			Predicate<DemandRoutesSolution> probeTest) {
+		if(pool==null) {
+			List<CandidateMove> candidates = new ArrayList<>();
+			enumerate(element, granularity, probeTest, e -> {
+				if(probeTest.test(e.probe(element)))
+					candidates.add(e.snapshot());
+				return false;
+			});
+			return candidates;
+		}
+		
+		int size = element.routes.size();
+		int[] offsets = new int[size+1];
+		for(int cr=0; cr<size; cr++) {
+			offsets[cr+1] = offsets[cr]+moveType.width(element, cr);
+		}
+		int unitCount = offsets[size];
+		int threshold = Math.max(1, unitCount/(pool.getParallelism()*TASKS_PER_THREAD));
+		
+		return pool.invoke(new CollectTask(element, granularity, offsets, 0, unitCount, threshold, probeTest));
+	}
+	
+	/**
+	 * Is the budget exhausted, an enumeration which saw it exhausted left out units.
+	 */
+	public boolean isExhausted() {
+		return budget!=null && budget.isExhausted();
+	}
+	
+	private PairMemory.Pass pass(DemandRoutesSolution element, CandidateLists.Granularity granularity, 
+			Predicate<DemandRoutesSolution> probeTest) {
+		if(memory==null || granularity!=null || probeTest==null)
+			return null;
+		return memory.pass(element, probeTest);
+	}
+	
+	//================================================================================================
+	
+	private final class CollectTask extends RecursiveTask<List<CandidateMove>>{
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final DemandRoutesSolution element;
+		private final CandidateLists.Granularity granularity;
+		private final int[] offsets;
+		private final int from;
+		private final int to;
+		private final int threshold;
+		private final Predicate<DemandRoutesSolution> probeTest;
+
+		public CollectTask(DemandRoutesSolution element, CandidateLists.Granularity granularity, int[] offsets, 
+				int from, int to, int threshold, Predicate<DemandRoutesSolution> probeTest) {
+			this.element = element;
+			this.granularity = granularity;
+			this.offsets = offsets;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+			this.probeTest = probeTest;
+		}
+
+		@Override
+		protected List<CandidateMove> compute() {
+			if(to-from>threshold) {
+				int middle = (from+to)>>>1;
+				CollectTask left = new CollectTask(element, granularity, offsets, from, middle, threshold, probeTest);
+				CollectTask right = new CollectTask(element, granularity, offsets, middle, to, threshold, probeTest);
+				right.fork();
+				List<CandidateMove> candidates = left.compute();
+				candidates.addAll(right.join());
+				return candidates;
+			}
+			
+			List<CandidateMove> candidates = new ArrayList<>();
+			MoveEvaluator evaluator = new MoveEvaluator(description.dimension, metrics!=null);
+			evaluator.setRouteCache(cache);
+			PairMemory.Pass pass = pass(element, granularity, probeTest);
+			evaluator.setPass(pass);
+			MoveConsumer consumer = e -> {
+				if(probeTest.test(e.probe(element)))
+					candidates.add(e.snapshot());
+				return false;
+			};
+			
+			int cr = routeOf(from);
+			int started = -1;
+			boolean exhausted = false;
+			for(int unit=from; unit<to; unit++) {
+				if(isExhausted()) {
+					exhausted = true;
+					break;
+				}
+				while(unit>=offsets[cr+1])
+					cr++;
+				if(pass!=null && cr!=started) {
+					endRoute(pass, started);
+					pass.startRoute(cr);
+					started = cr;
+				}
+				moveType.enumerate(description, element, cr, unit-offsets[cr], granularity, evaluator, consumer);
+			}
+			if(pass!=null && !exhausted)
+				endRoute(pass, started);
+			if(metrics!=null)
+				evaluator.drainTo(metrics);
+			return candidates;
+		}
+		
+		/**
+		 * Stores the pairs of the route if all its units belong to this task.
+		 */
+		private void endRoute(PairMemory.Pass pass, int route) {
+			if(route>=0 && offsets[route]>=from && offsets[route+1]<=to)
+				pass.endRoute();
+		}
+		
+		private int routeOf(int unit) {
+			int low = 0;
+			int high = offsets.length-2;
+			while(low<high) {
+				int middle = (low+high+1)>>>1;
+				if(offsets[middle]<=unit)
+					low = middle;
+				else
+					high = middle-1;
+			}
+			return low;
+		}
+	}
+}
@@ -0,0 +1,262 @@
+package common.neighborhood;
+
+import java.util.Arrays;
+
+import common.RouteCache;
+import common.RouteOptimizer;
+import common.fingerprint.Fingerprint;
+import common.metrics.SearchMetrics;
+import heuristic.routing.DemandRoute;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * Scores a two route move against its parent solution without cloning the parent. </br>
+ * The re-optimized station orders of both changed routes are kept in scratch buffers 
+ * and a full {@link DemandRoutesSolution} is only built by {@link #apply(DemandRoutesSolution)}
+ * or the parent itself is changed by {@link #applyTo(DemandRoutesSolution, MoveLog)}. </br>
+ * An instance holds the state of the last evaluated move so it must not be shared between threads.
+ */
+public final class MoveEvaluator {
+
+	//Last evaluated move
+	private int firstRoute;
+	private int secondRoute;
+	private final int[] firstStations;
+	private final int[] secondStations;
+	private int firstSize;
+	private int secondSize;
+	private int firstInserted; //stations the move added at the end of the buffer
+	private int secondInserted;
+	private double firstLength;
+	private double secondLength;
+	private double delta;
+	//
+	private final DemandRoutesSolution probe = new DemandRoutesSolution();
+	private PairMemory.Pass pass = null;
+	private RouteCache cache = null;
+	//Counts since the last drain
+	private final boolean timed;
+	private long candidates;
+	private long capacityRejections;
+	private long routeOptimizations;
+	private long routeOptimizationNanos;
+
+	/**
+	 * @param dimension - number of stations in the problem (depot included)
+	 */
+	public MoveEvaluator(int dimension) {
+		this(dimension, false);
+	}
+
+	/**
+	 * @param dimension - number of stations in the problem (depot included)
+	 * @param timed - should the time spent in route optimization be measured
+	 */
+	public MoveEvaluator(int dimension, boolean timed) {
+		this.firstStations = new int[dimension];
+		this.secondStations = new int[dimension];
+		this.timed = timed;
+	}
+
+	/**
+	 * Swaps station cs of route cr with station ns of route nr. </br>
+	 * Returns the change in solution length.
+	 */
+	@SuppressWarnings("rawtypes")
+	public double swap(DemandRoutesSolution element, int cr, int cs, int nr, int ns) {
+		DemandRoute route1 = element.get(cr);
+		DemandRoute route2 = element.get(nr);
+
+		firstSize = copyWithout(route1, cs, firstStations);
+		firstStations[firstSize++] = route2.get(ns);
+		secondSize = copyWithout(route2, ns, secondStations);
+		secondStations[secondSize++] = route1.get(cs);
+		firstInserted = 1;
+		secondInserted = 1;
+
+		return evaluate(cr, route1, nr, route2);
+	}
+
+	/**
+	 * Moves station cs of route cr to the end of route nr. </br>
+	 * Returns the change in solution length.
+	 */
+	@SuppressWarnings("rawtypes")
+	public double relocate(DemandRoutesSolution element, int cr, int cs, int nr) {
+		DemandRoute route1 = element.get(cr);
+		DemandRoute route2 = element.get(nr);
+
+		firstSize = copyWithout(route1, cs, firstStations);
+		secondSize = copyWithout(route2, -1, secondStations);
+		secondStations[secondSize++] = route1.get(cs);
+		firstInserted = 0;
+		secondInserted = 1;
+
+		return evaluate(cr, route1, nr, route2);
+	}
+
+	/**
+	 * Appends all stations of route nr to route cr leaving route nr empty. </br>
+	 * Returns the change in solution length.
+	 */
+	@SuppressWarnings("rawtypes")
+	public double merge(DemandRoutesSolution element, int cr, int nr) {
+		DemandRoute route1 = element.get(cr);
+		DemandRoute route2 = element.get(nr);
+
+		firstSize = copyWithout(route1, -1, firstStations);
+		System.arraycopy(route2.getArray(), 0, firstStations, firstSize, route2.size());
+		firstSize += route2.size();
+		secondSize = 0;
+		firstInserted = route2.size();
+		secondInserted = 0;
+
+		return evaluate(cr, route1, nr, route2);
+	}
+
+	/**
+	 * Sets the pair memory view of the current enumeration (null to look at every pair).
+	 */
+	public void setPass(PairMemory.Pass pass) {
+		this.pass = pass;
+	}
+
+	/**
+	 * Sets the cache the changed routes are looked up in (null to solve every changed route).
+	 */
+	public void setRouteCache(RouteCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Returns true if the pair memory knows that no move from route cr to route nr passes the acceptance test.
+	 */
+	public boolean skips(int cr, int nr) {
+		return pass!=null && pass.skips(cr, nr);
+	}
+
+	/**
+	 * Returns a shared placeholder whose length is the one the last evaluated move would produce. </br>
+	 * It holds no routes and is only meant for quality based tests.
+	 */
+	public DemandRoutesSolution probe(DemandRoutesSolution element) {
+		probe.length = element.length+delta;
+		return probe;
+	}
+
+	/**
+	 * Builds the neighbor produced by applying the last evaluated move to the given element.
+	 */
+	public DemandRoutesSolution apply(DemandRoutesSolution element) {
+		return snapshot().apply(element);
+	}
+
+	/**
+	 * Same as {@link #apply(DemandRoutesSolution)} given the fingerprint of the element.
+	 */
+	public DemandRoutesSolution apply(DemandRoutesSolution element, long elementFingerprint) {
+		return snapshot().apply(element, elementFingerprint);
+	}
+	
+	/**
+	 * Returns the fingerprint of the neighbor the last evaluated move would produce, without building it.
+	 */
+	public long fingerprint(DemandRoutesSolution element, long elementFingerprint) {
+		long fingerprint = Fingerprint.update(elementFingerprint, 
+				Fingerprint.ofRoute(element.get(firstRoute)), Fingerprint.ofRoute(firstStations, firstSize));
+		return Fingerprint.update(fingerprint, 
+				Fingerprint.ofRoute(element.get(secondRoute)), Fingerprint.ofRoute(secondStations, secondSize));
+	}
+
+	/**
+	 * Applies the last evaluated move to the element itself. </br>
+	 * The changed routes are recorded in the log first so the move can be undone (null if it never is).
+	 */
+	@SuppressWarnings("rawtypes")
+	public void applyTo(DemandRoutesSolution element, MoveLog log) {
+		if(log!=null) {
+			log.record(element, firstRoute);
+			log.record(element, secondRoute);
+		}
+		set(element.get(firstRoute), firstStations, firstSize, firstLength);
+		set(element.get(secondRoute), secondStations, secondSize, secondLength);
+		element.length += delta;
+	}
+
+	/**
+	 * Returns a copy of the last evaluated move which stays valid after the next evaluation.
+	 */
+	public CandidateMove snapshot() {
+		return new CandidateMove(firstRoute, Arrays.copyOf(firstStations, firstSize), firstLength, 
+				secondRoute, Arrays.copyOf(secondStations, secondSize), secondLength, delta);
+	}
+
+	public double getDelta() {
+		return delta;
+	}
+
+	/**
+	 * Counts a candidate skipped because it would overload a route.
+	 */
+	public void rejectCapacity() {
+		capacityRejections++;
+	}
+
+	/**
+	 * Adds the counts since the last drain to the metrics and resets them.
+	 */
+	public void drainTo(SearchMetrics metrics) {
+		metrics.addEnumeration(candidates, capacityRejections, routeOptimizations, routeOptimizationNanos);
+		candidates = 0;
+		capacityRejections = 0;
+		routeOptimizations = 0;
+		routeOptimizationNanos = 0;
+	}
+
+	//================================================================================================
+
+	@SuppressWarnings("rawtypes")
+	private double evaluate(int cr, DemandRoute route1, int nr, DemandRoute route2) {
+		double[][] distances = route1.getDistances();
+
+		firstRoute = cr;
+		secondRoute = nr;
+		long start = timed ? System.nanoTime() : 0;
+		firstLength = RouteOptimizer.optimize(cache, distances, firstStations, firstSize, firstInserted, route1.getLength());
+		secondLength = RouteOptimizer.optimize(cache, distances, secondStations, secondSize, secondInserted, route2.getLength());
+		if(timed)
+			routeOptimizationNanos += System.nanoTime()-start;
+		candidates++;
+		routeOptimizations+=2;
+		double pairLength = firstLength+secondLength;
+		delta = pairLength-route1.getLength()-route2.getLength();
+		if(pass!=null)
+			pass.evaluated(nr, pairLength);
+
+		return delta;
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static void set(DemandRoute route, int[] stations, int size, double length) {
+		route.removeAll();
+		route.addAll(Arrays.copyOf(stations, size));
+		route.setLength(length);
+	}
+
+	/**
+	 * Copies the route stations into the buffer skipping the given position (-1 to copy all).
+	 */
+	@SuppressWarnings("rawtypes")
+	private static int copyWithout(DemandRoute route, int position, int[] buffer) {
+		int size = route.size();
+		int[] stations = route.getArray();
+		if(position<0) {
+			System.arraycopy(stations, 0, buffer, 0, size);
+			return size;
+		}
+		System.arraycopy(stations, 0, buffer, 0, position);
+		System.arraycopy(stations, position+1, buffer, position, size-position-1);
+		return size-1;
+	}
+
+}
@@ -0,0 +1,67 @@
+package common.neighborhood;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import heuristic.routing.DemandRoute;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * Records the routes a sequence of in place moves changed so the sequence can be undone. </br>
+ * Routes are recorded before they are written (see {@link MoveEvaluator#applyTo(DemandRoutesSolution, MoveLog)}),
+ * {@link #undo(DemandRoutesSolution)} restores them in reverse order and {@link #clear()} keeps the changes.
+ */
+public final class MoveLog {
+
+	private final List<Entry> entries = new ArrayList<>();
+	private double length;
+
+	@SuppressWarnings("rawtypes")
+	void record(DemandRoutesSolution solution, int routeIndex) {
+		if(entries.isEmpty())
+			length = solution.length;
+		DemandRoute route = solution.get(routeIndex);
+		entries.add(new Entry(routeIndex, route.toArray(), route.getLength()));
+	}
+
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	/**
+	 * Restores the solution to its state before the first recorded move and clears the log.
+	 */
+	@SuppressWarnings("rawtypes")
+	public void undo(DemandRoutesSolution solution) {
+		if(entries.isEmpty())
+			return;
+		for(int i=entries.size()-1; i>=0; i--) {
+			Entry entry = entries.get(i);
+			DemandRoute route = solution.get(entry.routeIndex);
+			route.removeAll();
+			route.addAll(entry.stations);
+			route.setLength(entry.length);
+		}
+		solution.length = length;
+		entries.clear();
+	}
+
+	/**
+	 * Keeps the recorded moves.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	private static final class Entry{
+		private final int routeIndex;
+		private final int[] stations;
+		private final double length;
+
+		public Entry(int routeIndex, int[] stations, double length) {
+			this.routeIndex = routeIndex;
+			this.stations = stations;
+			this.length = length;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package common.neighborhood;
+
+import heuristic.routing.DemandRoute;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * The two route moves used by the CVRP neighborhoods. </br>
+ * The candidates of a move type are split into units identified by a route (cr) and a position in it (x), 
+ * where x is a station position for swap/relocate and the second route for merge. 
+ * Enumerating units in order gives the same candidate order as the original neighborhood loops.
+ */
+public enum MoveType {
+	
+	MERGE {
+		@Override
+		public int width(DemandRoutesSolution element, int cr) {
+			return element.routes.size();
+		}
+
+		@Override
+		public boolean enumerate(CVRPDescription description, DemandRoutesSolution element, int cr, int nr,
+				CandidateLists.Granularity granularity, MoveEvaluator evaluator, MoveConsumer consumer) {
+			if(nr<=cr)
+				return false;
+			
+			if(element.get(cr).isEmpty() || element.get(nr).isEmpty())
+				return false;
+			
+			if(evaluator.skips(cr, nr))
+				return false;
+			
+			if(element.get(cr).getDemand()+element.get(nr).getDemand()>description.capacity) {
+				evaluator.rejectCapacity();
+				return false;
+			}
+			
+			evaluator.merge(element, cr, nr);
+			return consumer.accept(evaluator);
+		}
+	},
+	
+	RELOCATE {
+		@Override
+		public int width(DemandRoutesSolution element, int cr) {
+			return element.get(cr).size();
+		}
+
+		@Override
+		public boolean enumerate(CVRPDescription description, DemandRoutesSolution element, int cr, int cs,
+				CandidateLists.Granularity granularity, MoveEvaluator evaluator, MoveConsumer consumer) {
+			int station = element.get(cr).get(cs);
+			for(int nr=0,size=element.routes.size(); nr<size;nr++) {
+				if(cr==nr || evaluator.skips(cr, nr))
+					continue;
+				
+				if(element.get(nr).getDemand()+description.demand[station]>description.capacity) {
+					evaluator.rejectCapacity();
+					continue;
+				}
+				
+				if(granularity!=null && !granularity.allowsRelocate(station, nr))
+					continue;
+				
+				evaluator.relocate(element, cr, cs, nr);
+				if(consumer.accept(evaluator))
+					return true;
+			}
+			return false;
+		}
+	},
+	
+	SWAP {
+		@Override
+		public int width(DemandRoutesSolution element, int cr) {
+			return element.get(cr).size();
+		}
+
+		@SuppressWarnings("rawtypes")
+		@Override
+		public boolean enumerate(CVRPDescription description, DemandRoutesSolution element, int cr, int cs,
+				CandidateLists.Granularity granularity, MoveEvaluator evaluator, MoveConsumer consumer) {
+			int[] demands = description.demand;
+			DemandRoute originalRoute1 = element.get(cr);
+			int s1 = originalRoute1.get(cs);
+			
+			for(int nr=0,size=element.routes.size(); nr<size;nr++) {
+				if(cr==nr || evaluator.skips(cr, nr))
+					continue;
+				DemandRoute originalRoute2 = element.get(nr);
+				for(int ns=0,sizeR2=originalRoute2.size(); ns<sizeR2;ns++) {
+					int s2 = originalRoute2.get(ns);
+					
+					if(originalRoute1.getDemand()-demands[s1]+demands[s2]>description.capacity ||
+							originalRoute2.getDemand()-demands[s2]+demands[s1]>description.capacity) {
+						evaluator.rejectCapacity();
+						continue;
+					}
+					
+					if(granularity!=null && !granularity.allowsSwap(s1, cr, s2, nr))
+						continue;
+					
+					evaluator.swap(element, cr, cs, nr, ns);
+					if(consumer.accept(evaluator))
+						return true;
+				}
+			}
+			return false;
+		}
+	};
+	
+	/**
+	 * Returns the number of units belonging to route cr
+	 */
+	public abstract int width(DemandRoutesSolution element, int cr);
+	
+	/**
+	 * Evaluates every capacity feasible move of the unit (cr,x) allowed by the granularity (null allows all)
+	 * and passes it to the consumer, leaving out the route pairs the evaluator skips. </br>
+	 * Returns true if the consumer requested the enumeration to stop.
+	 */
+	public abstract boolean enumerate(CVRPDescription description, DemandRoutesSolution element, int cr, int x,
+			CandidateLists.Granularity granularity, MoveEvaluator evaluator, MoveConsumer consumer);
+	
+	/**
+	 * Can the move type be restricted by candidate lists
+	 */
+	public boolean isGranular() {
+		return this!=MERGE;
+	}
+}
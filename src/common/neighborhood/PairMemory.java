@@ -0,0 +1,183 @@
+package common.neighborhood;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import common.fingerprint.Fingerprint;
+import heuristic.routing.DemandRoute;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * "Don't look" memory of one neighborhood: for an ordered pair of routes (from, to) it keeps the shortest total length
+ * of the two re-optimized routes over all moves of the pair. </br>
+ * Routes are identified by their {@link Fingerprint}, which acts as a version stamp: a move changes the fingerprints
+ * of the two routes it touches so only their pairs are looked at again, while pairs of unchanged routes keep their entry,
+ * also across population members and after VND copies the neighbor into the solution. </br>
+ * During an enumeration (see {@link Pass}) a pair is skipped if even its best move would not pass the acceptance test,
+ * after an improvement this leaves O(R) instead of O(R^2) pairs to evaluate.
+ * Accepted moves are never skipped so the neighbors found are the same as without the memory. </br>
+ * The memory is a thread safe, direct mapped table, a colliding pair replaces the older entry.
+ */
+public final class PairMemory {
+
+	private final AtomicReferenceArray<Entry> entries;
+	private final int mask;
+	private final LongAdder skipped = new LongAdder();
+	private final LongAdder stored = new LongAdder();
+
+	/**
+	 * @param capacity - number of route pairs kept, rounded up to a power of two
+	 */
+	public PairMemory(int capacity) {
+		if(capacity<=0)
+			throw new IllegalArgumentException("Capacity must be positive");
+		int size = Integer.highestOneBit(Math.max(1, capacity-1))<<1;
+		this.entries = new AtomicReferenceArray<>(size);
+		this.mask = size-1;
+	}
+
+	/**
+	 * Returns the shortest known total length of the pair after a move or NaN if the pair is unknown
+	 * (positive infinity if the pair has no capacity feasible move).
+	 */
+	public double get(long from, long to) {
+		Entry entry = entries.get(index(from, to));
+		if(entry==null || entry.from!=from || entry.to!=to)
+			return Double.NaN;
+		return entry.bestLength;
+	}
+
+	public void put(long from, long to, double bestLength) {
+		entries.set(index(from, to), new Entry(from, to, bestLength));
+		stored.increment();
+	}
+
+	/**
+	 * Starts an enumeration of the element whose moves are tested with the given acceptance test.
+	 */
+	public Pass pass(DemandRoutesSolution element, Predicate<DemandRoutesSolution> probeTest) {
+		return new Pass(element, probeTest);
+	}
+
+	public long getSkipped() {
+		return skipped.sum();
+	}
+
+	public long getStored() {
+		return stored.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "Pair memory: size="+entries.length()+" skipped="+getSkipped()+" stored="+getStored();
+	}
+
+	private int index(long from, long to) {
+		long hash = from*0x9E3779B97F4A7C15L+to;
+		return (int) (hash^(hash>>>32))&mask;
+	}
+
+	//================================================================================================
+
+	/**
+	 * Memory view of a single enumeration on one thread. </br>
+	 * The enumeration calls {@link #startRoute(int)} before the units of a route, {@link #skips(int, int)} before
+	 * looking at the moves of each pair and {@link #endRoute()} once all units of the route were enumerated,
+	 * the evaluator reports every evaluated move through {@link #evaluated(int, double)}.
+	 * Only pairs which were looked at by a route whose units were all enumerated are stored.
+	 */
+	public final class Pass{
+
+		private static final byte UNDECIDED = 0;
+		private static final byte LOOK = 1; //unknown pair, stored at the end of the route
+		private static final byte LOOK_KNOWN = 2; //known pair whose best move may be accepted
+		private static final byte SKIP = 3;
+
+		private final DemandRoutesSolution element;
+		private final Predicate<DemandRoutesSolution> probeTest;
+		private final DemandRoutesSolution probe = new DemandRoutesSolution();
+		private final long[] fingerprints;
+		private final double[] best;
+		private final byte[] decisions;
+		private int route = -1;
+
+		private Pass(DemandRoutesSolution element, Predicate<DemandRoutesSolution> probeTest) {
+			this.element = element;
+			this.probeTest = probeTest;
+			int size = element.routes.size();
+			this.fingerprints = new long[size];
+			for(int r=0; r<size; r++)
+				fingerprints[r] = Fingerprint.ofRoute(element.get(r));
+			this.best = new double[size];
+			this.decisions = new byte[size];
+		}
+
+		public void startRoute(int cr) {
+			route = cr;
+			Arrays.fill(best, Double.POSITIVE_INFINITY);
+			Arrays.fill(decisions, UNDECIDED);
+		}
+
+		/**
+		 * Returns true if no move from the current route cr to route nr can pass the acceptance test. </br>
+		 * The memory is only read the first time a pair is seen, the decision holds for the rest of the route
+		 * even if another thread stores the pair meanwhile.
+		 */
+		public boolean skips(int cr, int nr) {
+			byte decision = decisions[nr];
+			if(decision==UNDECIDED) {
+				decision = decide(cr, nr);
+				decisions[nr] = decision;
+				if(decision==SKIP)
+					skipped.increment();
+			}
+			return decision==SKIP;
+		}
+
+		@SuppressWarnings("rawtypes")
+		private byte decide(int cr, int nr) {
+			double bestLength = get(fingerprints[cr], fingerprints[nr]);
+			if(Double.isNaN(bestLength))
+				return LOOK;
+			if(bestLength==Double.POSITIVE_INFINITY)
+				return SKIP;
+			DemandRoute route1 = element.get(cr);
+			DemandRoute route2 = element.get(nr);
+			probe.length = element.length+bestLength-route1.getLength()-route2.getLength();
+			return probeTest.test(probe) ? LOOK_KNOWN : SKIP;
+		}
+
+		/**
+		 * Records the total length of both routes after a move between them.
+		 */
+		public void evaluated(int nr, double pairLength) {
+			if(pairLength<best[nr])
+				best[nr] = pairLength;
+		}
+
+		/**
+		 * Stores the pairs the current route looked at.
+		 */
+		public void endRoute() {
+			for(int nr=0; nr<best.length; nr++) {
+				if(decisions[nr]==LOOK)
+					put(fingerprints[route], fingerprints[nr], best[nr]);
+			}
+			route = -1;
+		}
+	}
+
+	private static final class Entry{
+		private final long from;
+		private final long to;
+		private final double bestLength;
+
+		public Entry(long from, long to, double bestLength) {
+			this.from = from;
+			this.to = to;
+			this.bestLength = bestLength;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package common.neighborhood;
+
+import java.util.Random;
+
+import common.RouteCache;
+import common.metrics.SearchMetrics;
+
+import heuristic.routing.DemandRoute;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * Draws the random moves of {@link SwapStationsGenerator}, {@link ChangeStationRouteGenerator} and {@link MergeRoutesGenerator}
+ * but evaluates them without changing the solution. </br>
+ * Capacity is checked before anything is evaluated, so infeasible moves cost a few lookups.
+ * An evaluated move is applied to the solution only if it is accepted, see {@link #apply(DemandRoutesSolution, MoveLog)}.
+ */
+public final class RandomMove {
+
+	private final CVRPDescription description;
+	private final Random random;
+	private final MoveEvaluator evaluator;
+
+	public RandomMove(CVRPDescription description, Random random) {
+		this(description, random, null);
+	}
+
+	/**
+	 * @param cache - solved routes of the run (null to solve every changed route)
+	 */
+	public RandomMove(CVRPDescription description, Random random, RouteCache cache) {
+		this.description = description;
+		this.random = random;
+		this.evaluator = new MoveEvaluator(description.dimension);
+		evaluator.setRouteCache(cache);
+	}
+
+	/**
+	 * Draws a move of a random type for the solution and evaluates it. </br>
+	 * Returns false if the drawn move changes nothing or would overload a route, nothing is evaluated then.
+	 */
+	public boolean next(DemandRoutesSolution solution) {
+		switch (random.nextInt(3)) {
+			case 0:
+				return nextSwap(solution);
+			case 1:
+				return nextRelocate(solution);
+			default:
+				return nextMerge(solution);
+		}
+	}
+
+	/**
+	 * Returns the change in solution length of the last evaluated move.
+	 */
+	public double getDelta() {
+		return evaluator.getDelta();
+	}
+
+	/**
+	 * Adds the counts of the moves evaluated since the last drain to the metrics.
+	 */
+	public void drainTo(SearchMetrics metrics) {
+		evaluator.drainTo(metrics);
+	}
+
+	/**
+	 * Applies the last evaluated move to the solution, recording it in the log (null if it is never undone).
+	 */
+	public void apply(DemandRoutesSolution solution, MoveLog log) {
+		evaluator.applyTo(solution, log);
+	}
+
+	//================================================================================================
+
+	/**
+	 * Same as SwapStationsGenerator: swaps random stations of two random non empty routes.
+	 */
+	@SuppressWarnings("rawtypes")
+	private boolean nextSwap(DemandRoutesSolution solution) {
+		int cr = nonEmpty(solution);
+		int nr = nonEmpty(solution);
+		if(cr==nr)
+			return false;
+
+		DemandRoute route1 = solution.get(cr);
+		DemandRoute route2 = solution.get(nr);
+		int cs = random.nextInt(route1.size());
+		int ns = random.nextInt(route2.size());
+		int[] demands = description.demand;
+		int s1 = route1.get(cs);
+		int s2 = route2.get(ns);
+		if(route1.getDemand()-demands[s1]+demands[s2]>description.capacity ||
+				route2.getDemand()-demands[s2]+demands[s1]>description.capacity)
+			return false;
+
+		evaluator.swap(solution, cr, cs, nr, ns);
+		return true;
+	}
+
+	/**
+	 * Same as ChangeStationRouteGenerator: moves a random station of a random non empty route to a random route.
+	 */
+	@SuppressWarnings("rawtypes")
+	private boolean nextRelocate(DemandRoutesSolution solution) {
+		int nr = random.nextInt(solution.routes.size());
+		int cr = nonEmpty(solution);
+		if(cr==nr)
+			return false;
+
+		DemandRoute route = solution.get(cr);
+		int cs = random.nextInt(route.size());
+		if(solution.get(nr).getDemand()+description.demand[route.get(cs)]>description.capacity)
+			return false;
+
+		evaluator.relocate(solution, cr, cs, nr);
+		return true;
+	}
+
+	/**
+	 * Same as MergeRoutesGenerator: appends a random non empty route to another one.
+	 */
+	private boolean nextMerge(DemandRoutesSolution solution) {
+		int nr = nonEmpty(solution);
+		int cr = nonEmpty(solution);
+		if(cr==nr || solution.get(cr).getDemand()+solution.get(nr).getDemand()>description.capacity)
+			return false;
+
+		evaluator.merge(solution, cr, nr);
+		return true;
+	}
+
+	private int nonEmpty(DemandRoutesSolution solution) {
+		int size = solution.routes.size();
+		while(true) {
+			int index = random.nextInt(size);
+			if(!solution.get(index).isEmpty())
+				return index;
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package common.order;
+
+import java.util.Arrays;
+
+/**
+ * Bandit ordering which scans the neighborhoods by their expected improvements per second. </br>
+ * Every neighborhood keeps its scans, improvements and scan time, the score is an upper confidence bound (UCB1)
+ * of its success rate divided by its mean scan time, so a cheap neighborhood which still improves is scanned
+ * before an expensive one. Neighborhoods which were never scanned come first, in their original order. </br>
+ * Older scans are decayed as the success rates drop while the search converges. </br>
+ * A descent still scans every neighborhood before it stops, only the order of the scans changes.
+ */
+public final class AdaptiveOrder implements NeighborhoodOrder {
+
+	private static final double DECAY = 0.98; //weight of a scan after every later scan
+
+	private final double[] scans;
+	private final double[] improvements;
+	private final double[] nanos;
+	private final double[] scores;
+	private double totalScans = 0;
+
+	public AdaptiveOrder(int neighborhoodCount) {
+		this.scans = new double[neighborhoodCount];
+		this.improvements = new double[neighborhoodCount];
+		this.nanos = new double[neighborhoodCount];
+		this.scores = new double[neighborhoodCount];
+	}
+
+	@Override
+	public void record(int neighborhood, boolean improved, long nanos) {
+		for(int i=0; i<scans.length; i++) {
+			scans[i] *= DECAY;
+			improvements[i] *= DECAY;
+			this.nanos[i] *= DECAY;
+		}
+		totalScans = totalScans*DECAY+1;
+		scans[neighborhood] += 1;
+		this.nanos[neighborhood] += Math.max(1, nanos);
+		if(improved)
+			improvements[neighborhood] += 1;
+	}
+
+	@Override
+	public void reorder(int[] order) {
+		for(int i=0; i<scores.length; i++)
+			scores[i] = score(i);
+		//insertion sort by descending score, equal scores keep the original order
+		Arrays.sort(order);
+		for(int i=1; i<order.length; i++) {
+			int neighborhood = order[i];
+			int j = i-1;
+			while(j>=0 && scores[order[j]]<scores[neighborhood]) {
+				order[j+1] = order[j];
+				j--;
+			}
+			order[j+1] = neighborhood;
+		}
+	}
+
+	/**
+	 * Optimistic improvements per nanosecond of a neighborhood.
+	 */
+	private double score(int neighborhood) {
+		double n = scans[neighborhood];
+		if(n==0)
+			return Double.POSITIVE_INFINITY;
+		double successRate = (improvements[neighborhood]+1)/(n+2);
+		double bonus = Math.sqrt(2*Math.log(totalScans+1)/n);
+		return Math.min(1, successRate+bonus)/(nanos[neighborhood]/n);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder stringBuilder = new StringBuilder("Adaptive order:");
+		for(int i=0; i<scans.length; i++) {
+			stringBuilder.append(String.format(" %d=%.2f/%.2f %.3fms", Integer.valueOf(i), Double.valueOf(improvements[i]),
+					Double.valueOf(scans[i]), Double.valueOf(scans[i]>0 ? nanos[i]/scans[i]*1e-6 : 0)));
+		}
+		return stringBuilder.toString();
+	}
+}
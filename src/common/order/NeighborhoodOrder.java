@@ -0,0 +1,19 @@
+package common.order;
+
+/**
+ * Strategy ordering the neighborhoods of one VND or POP-VND run, see {@link OrderedNeighborhoods}. </br>
+ * Neighborhoods are identified by their index in the original list.
+ */
+public interface NeighborhoodOrder {
+
+	/**
+	 * Records one scan of a neighborhood, improved is true if the descent moved to one of its neighbors.
+	 */
+	void record(int neighborhood, boolean improved, long nanos);
+
+	/**
+	 * Called after every improvement with the current order (identity at the start of the run),
+	 * the neighborhoods are scanned in the new order until the next improvement.
+	 */
+	void reorder(int[] order);
+}
@@ -0,0 +1,51 @@
+package common.order;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Read only view of the neighborhoods of one run in the order chosen by a {@link NeighborhoodOrder}. </br>
+ * The descents of this project (VND, ImmuneSystemVariableNeighborhoodDescent_V2 and WorkStealingPopulationDescent)
+ * call get(k) once per scan, with k=0 after an improvement and k+1 otherwise, so the view times every scan
+ * up to the next call and learns whether it improved without changes to the descents. </br>
+ * Every run needs its own view, the descent has to be given shuffle=false.
+ */
+public final class OrderedNeighborhoods<N> extends AbstractList<N> {
+
+	private final List<N> neighborhoods;
+	private final NeighborhoodOrder order;
+	private final int[] indices;
+	private int current = -1; //position of the neighborhood being scanned
+	private long scanStart;
+
+	public OrderedNeighborhoods(List<N> neighborhoods, NeighborhoodOrder order) {
+		this.neighborhoods = neighborhoods;
+		this.order = order;
+		this.indices = new int[neighborhoods.size()];
+		for(int i=0; i<indices.length; i++)
+			indices[i] = i;
+	}
+
+	@Override
+	public N get(int k) {
+		if(current!=-1) {
+			boolean improved = k==0;
+			order.record(indices[current], improved, System.nanoTime()-scanStart);
+			if(improved)
+				order.reorder(indices);
+		}
+		current = k;
+		scanStart = System.nanoTime();
+		return neighborhoods.get(indices[k]);
+	}
+
+	@Override
+	public int size() {
+		return indices.length;
+	}
+
+	@Override
+	public String toString() {
+		return order.toString();
+	}
+}
@@ -0,0 +1,30 @@
+package common.order;
+
+import java.util.Random;
+
+/**
+ * Random order after every improvement, the shuffle option of the descents without shuffling the shared list.
+ */
+public final class ShuffledOrder implements NeighborhoodOrder {
+
+	private final Random random;
+
+	public ShuffledOrder(Random random) {
+		this.random = random;
+	}
+
+	@Override
+	public void record(int neighborhood, boolean improved, long nanos) {
+		//the order does not depend on the scans
+	}
+
+	@Override
+	public void reorder(int[] order) {
+		for(int i=order.length-1; i>0; i--) {
+			int j = random.nextInt(i+1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+	}
+}
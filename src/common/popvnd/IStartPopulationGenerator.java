@@ -0,0 +1,23 @@
+package common.popvnd;
+
+import java.util.List;
+
+import optimization.startSolutionGenerator.IStartSolutionGenerator;
+
+/**
+ * Start solution generator which can also give a whole start population. </br>
+ * {@link WorkStealingPopulationDescent} starts from the generated population, 
+ * other searches only use the first solution.
+ */
+public interface IStartPopulationGenerator<T> extends IStartSolutionGenerator<T> {
+
+	/**
+	 * Returns at least one start solution, the first is the most promising.
+	 */
+	List<T> generatePopulation();
+
+	@Override
+	default T generate() {
+		return generatePopulation().get(0);
+	}
+}
@@ -0,0 +1,37 @@
+package common.popvnd;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Number of neighbors one POP-VND iteration needs over all population members. </br>
+ * Neighborhoods count every neighbor they add (see {@link #add()}) and stop once {@link #isReached()},
+ * so with FIRST selection the other members stop as soon as enough neighbors were found.
+ * {@link WorkStealingPopulationDescent} resets it at the start of every iteration.
+ */
+public final class NeighborQuota {
+
+	private final int limit;
+	private final AtomicInteger count = new AtomicInteger();
+
+	/**
+	 * @param limit - neighbors after which the iteration stops (0 for no limit)
+	 */
+	public NeighborQuota(int limit) {
+		this.limit = limit;
+	}
+
+	public void reset() {
+		count.set(0);
+	}
+
+	/**
+	 * Counts a neighbor, returns true if the quota is reached.
+	 */
+	public boolean add() {
+		return limit>0 && count.incrementAndGet()>=limit;
+	}
+
+	public boolean isReached() {
+		return limit>0 && count.get()>=limit;
+	}
+}
@@ -0,0 +1,45 @@
+package common.popvnd;
+
+import java.util.List;
+import java.util.Random;
+
+import common.random.RandomStreams;
+import heuristic.popvnd.neighborhoodMaintenance.NeighborhooddMaintenanceAdapter;
+
+/**
+ * RandomMMaintenance (reservoir of M uniformly chosen neighbors per member) drawing from the stream bound to 
+ * the thread generating the member (see {@link RandomStreams}) instead of one Random shared by all threads.
+ */
+public class SeededRandomMMaintenance<T> extends NeighborhooddMaintenanceAdapter<T> {
+
+	private final int M;
+	private final ThreadLocal<int[]> nProvider = ThreadLocal.withInitial(()->new int[] {0});
+
+	public SeededRandomMMaintenance(int M) {
+		this.M = M;
+	}
+
+	@Override
+	public void startingNegihborhoodGeneration(T[] population) {
+		nProvider.get()[0] = 0;
+	}
+
+	@Override
+	public boolean addNeighbor(T[] population, T unit, T neighbor, List<T> neighbors) {
+		int[] n = nProvider.get();
+		n[0]++;
+
+		if(n[0]<=M) {
+			neighbors.add(neighbor);
+		}
+		else {
+			Random random = RandomStreams.current();
+			double chance = ((double)M)/((double)n[0]);
+			if(random.nextDouble()<=chance) {
+				neighbors.remove(random.nextInt(M));
+				neighbors.add(neighbor);
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,24 @@
+package common.popvnd;
+
+import java.util.Collections;
+import java.util.List;
+
+import common.random.RandomStreams;
+import heuristic.popvnd.populationSelection.FirstMSelection;
+import heuristic.popvnd.populationSelection.IPopulationSelection_V2;
+
+/**
+ * RandomMSelection drawing from the stream bound to the search loop (see {@link RandomStreams})
+ * instead of the global random of Collections.shuffle.
+ */
+public class SeededRandomMSelection<T> extends IPopulationSelection_V2<T> {
+
+	private final FirstMSelection<T> selection = new FirstMSelection<>();
+
+	@Override
+	public void select(T[] population, T[] nextPopulation, List<T> neighbors) {
+		if(neighbors.size()>nextPopulation.length)
+			Collections.shuffle(neighbors, RandomStreams.current());
+		selection.select(population, nextPopulation, neighbors);
+	}
+}
@@ -0,0 +1,183 @@
+package common.popvnd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+import heuristic.popvnd.neighborhood.INeighborhood_V2;
+import heuristic.popvnd.populationSelection.IPopulationSelection_V2;
+import optimization.algorithm.IOptimizationAlgorithm;
+import optimization.solution.ISolution;
+import optimization.startSolutionGenerator.IStartSolutionGenerator;
+import utilities.PArrays;
+
+/**
+ * Same search as ImmuneSystemVariableNeighborhoodDescent_V2 with a different member scheduling. </br>
+ * The neighborhoods of the population members are generated as fork join tasks, so idle workers steal
+ * the members of busy ones, and every member writes into its own neighbor buffer which is reused between iterations.
+ * Once all members finished their buffers are appended to the neighbor list in member order,
+ * so the neighbors do not depend on which worker generated which member. </br>
+ * Given a {@link NeighborQuota} (shared with the neighborhoods) members which have not started yet are skipped
+ * and running ones stop once the iteration has enough neighbors. </br>
+ * Without a pool the members are generated one after the other on the calling thread. </br>
+ * An {@link IStartPopulationGenerator} fills the start population, otherwise it holds the single start solution.
+ */
+public class WorkStealingPopulationDescent<T extends ISolution<T>> implements IOptimizationAlgorithm<T> {
+
+	//Constants
+	private final int maxPopulationSize;
+	private final boolean shuffleNeighborhoods;
+	//Strategies
+	private final IStartSolutionGenerator<T> startSolutionGenerator;
+	private final List<INeighborhood_V2<T>> neighborhoods;
+	private final IPopulationSelection_V2<T> populationSelection;
+	private final Function<T[], T> selectFinalSolution;
+	//Other
+	private final ForkJoinPool pool;
+	private final NeighborQuota quota;
+
+	/**
+	 * @param pool - pool the members are generated on (null for the calling thread)
+	 * @param quota - neighbors needed per iteration, also given to the neighborhoods (null for no early stop)
+	 */
+	public WorkStealingPopulationDescent(int maxPopulationSize, boolean shuffleNeighborhoods,
+			IStartSolutionGenerator<T> startSolutionGenerator, List<INeighborhood_V2<T>> neighborhoods,
+			IPopulationSelection_V2<T> populationSelection, Function<T[], T> selectFinalSolution,
+			ForkJoinPool pool, NeighborQuota quota) {
+		this.maxPopulationSize = maxPopulationSize;
+		this.shuffleNeighborhoods = shuffleNeighborhoods;
+		//
+		this.startSolutionGenerator = startSolutionGenerator;
+		this.neighborhoods = neighborhoods;
+		this.populationSelection = populationSelection;
+		this.selectFinalSolution = selectFinalSolution;
+		//
+		this.pool = pool;
+		this.quota = quota;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T run() {
+		List<T> startPopulation = startSolutionGenerator instanceof IStartPopulationGenerator 
+				? ((IStartPopulationGenerator<T>) startSolutionGenerator).generatePopulation()
+				: Collections.singletonList(startSolutionGenerator.generate());
+		T startSolution = startPopulation.get(0);
+		T[] population = PArrays.getGenericArray(maxPopulationSize, startSolution.getClass());
+		T[] nextPopulation = PArrays.getGenericArray(maxPopulationSize, startSolution.getClass());
+		for(int i=0,size=Math.min(maxPopulationSize, startPopulation.size()); i<size; i++) {
+			population[i] = startPopulation.get(i);
+		}
+
+		Iteration iteration = new Iteration();
+
+		int k = 0;
+		int neighborhoodsSize = neighborhoods.size();
+		while (k != neighborhoodsSize) {
+			List<T> neighbors = iteration.generate(neighborhoods.get(k), population);
+
+			// select improving if possible
+			populationSelection.select(population, nextPopulation, neighbors);
+			if (nextPopulation[0] == null) {
+				k++;
+			} else {
+				T[] swapPopulation = population;
+				population = nextPopulation;
+				nextPopulation = swapPopulation;
+
+				k = 0;
+				if (shuffleNeighborhoods)
+					Collections.shuffle(neighborhoods);
+			}
+		}
+
+		return selectFinalSolution.apply(population);
+	}
+
+	//================================================================================================
+
+	/**
+	 * Buffers and tasks of one iteration, created once per run.
+	 */
+	private final class Iteration extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<T> neighbors = new ArrayList<>();
+		private final List<Member> members = new ArrayList<>(maxPopulationSize);
+		private final List<Member> active = new ArrayList<>(maxPopulationSize);
+		private INeighborhood_V2<T> neighborhood;
+		private T[] population;
+
+		public Iteration() {
+			for(int i=0; i<maxPopulationSize; i++)
+				members.add(new Member(i));
+		}
+
+		/**
+		 * Returns the neighbors of all members, the list is reused by the next call.
+		 */
+		public List<T> generate(INeighborhood_V2<T> neighborhood, T[] population) {
+			this.neighborhood = neighborhood;
+			this.population = population;
+			neighbors.clear();
+			if(quota!=null)
+				quota.reset();
+
+			active.clear();
+			for(int i=0; i<population.length; i++) {
+				if(population[i]!=null) {
+					Member member = members.get(i);
+					member.reinitialize();
+					active.add(member);
+				}
+			}
+
+			if(pool==null || active.size()==1) {
+				for(Member member:active)
+					member.compute();
+			}
+			else {
+				reinitialize();
+				pool.invoke(this);
+			}
+
+			for(Member member:active) {
+				neighbors.addAll(member.buffer);
+				member.buffer.clear();
+			}
+			this.population = null;
+			return neighbors;
+		}
+
+		@Override
+		protected void compute() {
+			invokeAll(active);
+		}
+
+		/**
+		 * Generates the neighborhood of one population member into its own buffer.
+		 */
+		private final class Member extends RecursiveAction{
+
+			private static final long serialVersionUID = 1L;
+
+			private final int id;
+			private final List<T> buffer = new ArrayList<>();
+
+			public Member(int id) {
+				this.id = id;
+			}
+
+			@Override
+			protected void compute() {
+				if(quota!=null && quota.isReached())
+					return;
+				neighborhood.neighborhood(population, id, buffer);
+			}
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package common.random;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import utilities.random.RNGProvider;
+import utilities.random.XorShiftRandom;
+
+/**
+ * Random number streams of one run, all split from the run seed. </br>
+ * A stream is a function of the seed and its id only (SplitMix64 mixing as in SplittableRandom), so a run
+ * replays bit for bit from its seed as long as every stream is used by one thread at a time in a deterministic order. </br>
+ * The search loop uses the run stream and every population member its own member stream.
+ * Library strategies which draw from RNGProvider (SelectRandomImprovingNeighbor, the annealing, the SA neighborhoods)
+ * use the stream bound to the current thread once {@link #install()} was called, so does the TSP solver choice of
+ * RouteOptimizer (see {@link #bind}). Threads without a bound stream keep using ThreadLocalRandom. </br>
+ * Not reproducible: time budgets, adaptive neighborhood ordering, the shared FIRST quota of work stealing, parallel neighborhood enumeration
+ * and a route cache shared by population members or chains running in parallel
+ * (the cached length depends on which solver solved the route first).
+ */
+public final class RandomStreams {
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	private static final ThreadLocal<Random> BOUND = new ThreadLocal<>();
+
+	private static final int RUN = 0;
+	private static final int ORDER = 1;
+	private static final int FIRST_MEMBER = 2;
+
+	private final long seed;
+	private final Random run;
+	private final Random[] members;
+
+	/**
+	 * @param memberCount - population members which get their own stream
+	 */
+	public RandomStreams(long seed, int memberCount) {
+		this.seed = seed;
+		this.run = split(RUN);
+		this.members = new Random[memberCount];
+		for(int i=0; i<memberCount; i++)
+			members[i] = split(FIRST_MEMBER+i);
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Stream of the search loop: selection, acceptance and start solutions.
+	 */
+	public Random getRunStream() {
+		return run;
+	}
+
+	/**
+	 * Stream of the neighborhood generation of a population member (the run stream if there is no such member).
+	 */
+	public Random getMemberStream(int id) {
+		return id<members.length ? members[id] : run;
+	}
+
+	/**
+	 * Returns a new stream for an annealing chain of the run.
+	 */
+	public Random newChainStream(int chain) {
+		return split(FIRST_MEMBER+members.length+chain);
+	}
+
+	/**
+	 * Returns a new stream for the neighborhood order.
+	 */
+	public Random newOrderStream() {
+		return split(ORDER);
+	}
+
+	/**
+	 * Returns a new stream with the given id, ids 0 to memberCount+1 are taken by the streams above, higher ids by the chain streams.
+	 */
+	public Random split(long id) {
+		long streamSeed = mix(seed+(id+1)*GOLDEN_GAMMA);
+		return new XorShiftRandom(streamSeed==0 ? GOLDEN_GAMMA : streamSeed);
+	}
+
+	/**
+	 * Routes the library strategies which draw from RNGProvider through the streams bound to the threads,
+	 * should be called before a run starts.
+	 */
+	public static void install() {
+		RNGProvider.setRandomSupplier(RandomStreams::current);
+	}
+
+	/**
+	 * Returns the stream bound to the current thread or the thread's ThreadLocalRandom.
+	 */
+	public static Random current() {
+		Random random = BOUND.get();
+		return random!=null ? random : ThreadLocalRandom.current();
+	}
+
+	/**
+	 * Binds the stream to the current thread (null unbinds) and returns the previously bound stream, 
+	 * which should be bound again once the work is done.
+	 */
+	public static Random bind(Random random) {
+		Random previous = BOUND.get();
+		if(random==null)
+			BOUND.remove();
+		else
+			BOUND.set(random);
+		return previous;
+	}
+
+	/**
+	 * Returns a seed derived from a master seed and a key, e.g. the description of a run,
+	 * so a run keeps its seed when other runs are added to the experiment.
+	 */
+	public static long derive(long masterSeed, long key) {
+		return mix(masterSeed^mix(key+GOLDEN_GAMMA));
+	}
+
+	/**
+	 * Returns a new seed for a run which was not given one.
+	 */
+	public static long newSeed() {
+		return mix(System.nanoTime()^ThreadLocalRandom.current().nextLong());
+	}
+
+	/**
+	 * SplitMix64 finalizer.
+	 */
+	private static long mix(long z) {
+		z = (z^(z>>>30))*0xBF58476D1CE4E5B9L;
+		z = (z^(z>>>27))*0x94D049BB133111EBL;
+		return z^(z>>>31);
+	}
+}
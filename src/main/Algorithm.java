@@ -1,5 +1,12 @@
 package main;
 
 public enum Algorithm{
-	VND,POP_VND;
+	VND,POP_VND,SA_POP_VND,SA;
+
+	/**
+	 * Does the algorithm search with a population of solutions.
+	 */
+	public boolean hasPopulation() {
+		return this==POP_VND || this==SA_POP_VND;
+	}
 }
\ No newline at end of file
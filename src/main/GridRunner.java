@@ -0,0 +1,67 @@
+package main;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import utilities.executor.ExecutorServiceProvider;
+
+/**
+ * Executes the runs of an experiment grid. </br>
+ * With {@link Parallelism#RUN} independent runs are executed concurrently on a bounded pool,
+ * with {@link Parallelism#SOLVER} they are executed one after the other in the given order.
+ */
+public class GridRunner {
+
+	@FunctionalInterface
+	public static interface RunTask{
+		public void run(RunConfiguration configuration) throws IOException;
+	}
+
+	private final Parallelism parallelism;
+	private final int threadCount;
+
+	/**
+	 * @param threadCount - number of concurrently executed runs when using {@link Parallelism#RUN}
+	 */
+	public GridRunner(Parallelism parallelism, int threadCount) {
+		this.parallelism = parallelism;
+		this.threadCount = threadCount;
+	}
+
+	public void run(List<RunConfiguration> runs, RunTask task) throws IOException {
+		if(parallelism==Parallelism.SOLVER || threadCount<=1) {
+			for(RunConfiguration run:runs) {
+				task.run(run);
+			}
+			return;
+		}
+
+		ExecutorService runExecutor = ExecutorServiceProvider.getNewExecutorService(threadCount);
+		try {
+			List<Future<Void>> futures = new ArrayList<>(runs.size());
+			for(RunConfiguration run:runs) {
+				futures.add(runExecutor.submit(() -> {
+					task.run(run);
+					return null;
+				}));
+			}
+			for(Future<Void> future:futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException)
+				throw (IOException) cause;
+			throw new RuntimeException(cause);
+		} finally {
+			runExecutor.shutdownNow();
+		}
+	}
+}
@@ -1,286 +1,183 @@
 package main;
 
 
-import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
-import java.util.Arrays;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.function.Function;
-import java.util.function.Predicate;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
+import common.InstanceCache;
+import common.RouteOptimizer;
 import common.StartSolution;
-import function.ID1Function;
-import heuristic.VariableNeighborhoodDescent;
-import heuristic.popvnd.ImmuneSystemVariableNeighborhoodDescent_V2;
-import heuristic.popvnd.finalSolutionSelection.BestSolutionSelection;
-import heuristic.popvnd.neighborAcceptanceTest.BetterThanBestInPopulation;
-import heuristic.popvnd.neighborAcceptanceTest.NeighborAcceptanceTest;
-import heuristic.popvnd.neighborhood.ChangeStationRoute_V2;
-import heuristic.popvnd.neighborhood.INeighborhood_V2;
-import heuristic.popvnd.neighborhood.MergeRoutes_V2;
-import heuristic.popvnd.neighborhood.SwapStations_V2;
-import heuristic.popvnd.neighborhoodMaintenance.BestMMaintenance;
-import heuristic.popvnd.neighborhoodMaintenance.FirstMMaintenance;
-import heuristic.popvnd.neighborhoodMaintenance.NeighborhoodMaintenance;
-import heuristic.popvnd.neighborhoodMaintenance.RandomMMaintenance;
-import heuristic.popvnd.populationSelection.BestMSelection;
-import heuristic.popvnd.populationSelection.FirstMSelection;
-import heuristic.popvnd.populationSelection.IPopulationSelection_V2;
-import heuristic.popvnd.populationSelection.RandomMSelection;
-import heuristic.routing.ImplicitLoopDemandRoute;
+import common.anytime.Incumbent;
+import common.construction.Construction;
+import common.metrics.SearchMetrics;
+import common.random.RandomStreams;
 import heuristic.routing.cvrp.CVRPDescription;
 import heuristic.routing.cvrp.DemandRoutesSolution;
-import heuristic.routing.cvrp.neighborhood.ChangeStationRoute;
-import heuristic.routing.cvrp.neighborhood.MergeRoutes;
-import heuristic.routing.cvrp.neighborhood.SwapStations;
-import optimization.decoder.IDecoder;
-import optimization.decoder.PassThroughDecoder;
-import optimization.fittnesEvaluator.FunctionValueFitnessEvaluator;
-import optimization.fittnesEvaluator.IFitnessEvaluator;
-import optimization.fittnesEvaluator.NegateFitnessEvaluator;
-import optimization.solution.neighborhood.INeighborhood;
-import optimization.solution.neighborhood.selection.INeighborSelection;
-import optimization.solution.neighborhood.selection.SelectBestImprovingNeighbor;
-import optimization.solution.neighborhood.selection.SelectFirstImprovingNeighbor;
-import optimization.solution.neighborhood.selection.SelectRandomImprovingNeighbor;
+import sa.PVND_SA_Main;
 import utilities.executor.ExecutorServiceProvider;
-import utility.Utilities;
+import utility.DirectExecutorService;
 
 public class Main {
 
 	private static final Algorithm ALGORITHM = Algorithm.POP_VND;
-	private static final int THREAD_COUNT = 1;
+	private static final Parallelism PARALLELISM = Parallelism.RUN; //concurrent runs write their results under concurrent_<GRID_THREAD_COUNT>/
+	private static final int GRID_THREAD_COUNT = Runtime.getRuntime().availableProcessors(); //concurrent runs with Parallelism.RUN
+	private static final int THREAD_COUNT = 1; //POP-VND population threads with Parallelism.SOLVER
+	private static final int NEIGHBORHOOD_THREAD_COUNT = 1; //threads enumerating the neighborhood of a single solution with Parallelism.SOLVER
 	private static final boolean[] SHUFFLE_NEIGHBORHOODS_OPTIONS = new boolean[] {false,true};
 	private static final Type[] TYPE_OPTIONS = Type.values();
 	private static final int MIN_POPULATION_SIZE = 2;
 	private static final int MAX_POPULATION_SIZE = 3; 
 	private static final int REPETITION_COUNT = 5;
 	private static final boolean SAVE_RESULT = true;
-	//
-	private static int POPULATION_SIZE;
-	private static boolean SHUFFLE_NEIGHBORHOODS;
-	private static Type TYPE;
-	//
-	private static ExecutorService executorService;
+	private static final int ROUTE_CACHE_SIZE = 200_000; //routes solved by a run are reused within the run, 0 disables the route cache
+	private static final double ROUTE_REPAIR_FALLBACK = 0; //changed routes are repaired and solved again if longer than this ratio of the route before the move, 0 always solves them
+	private static final int CANDIDATE_LIST_SIZE = 0; //k nearest customers for granular swap/relocate, 0 uses the full neighborhood
+	private static final boolean WIDEN_CANDIDATE_LISTS = true; //widen k when no granular move is accepted
+	private static final Construction CONSTRUCTION = Construction.SINGLETON; //start solution of every run
+	private static final long TIME_LIMIT_MILLIS = 0; //anytime mode: best solution after the given time, 0 for no limit
+	private static final long ITERATION_LIMIT = 0; //anytime mode: best solution after the given iterations, 0 for no limit
+	private static final boolean DEDUPLICATE_NEIGHBORS = false; //drop neighbors equal to another neighbor before selection
+	private static final int VISITED_SET_SIZE = 0; //members per neighborhood whose neighborhood is not generated again, 0 disables it
+	private static final boolean WORK_STEALING = false; //POP-VND members on a fork join pool, FIRST stops the other members early
+	private static final int PAIR_MEMORY_SIZE = 0; //route pairs remembered per neighborhood to skip non improving ones, 0 disables it
+	private static final boolean ADAPTIVE_ORDERING = false; //neighborhoods ordered by improvements per second, replaces the shuffle option
+	private static final long SEED = 0; //master seed the run seeds are derived from, 0 draws one at start
+	private static final boolean COLLECT_METRICS = false; //search counters written to output/metrics/
+	private static final String BINARY_INSTANCE_DIRECTORY = "output/instances/"; //binary instances with the stored distances, null only parses the .vrp files
 	
 	
 	public static void main(String[] args) throws IOException {
 		
 		PrintStream output = System.out;
-		executorService = ExecutorServiceProvider.getNewExecutorService(THREAD_COUNT);
+		ResultWriter resultWriter = new ResultWriter(output, SAVE_RESULT);
+		MetricsWriter metricsWriter = COLLECT_METRICS ? new MetricsWriter() : null;
+		RouteOptimizer.setRepair(ROUTE_REPAIR_FALLBACK);
+		if(BINARY_INSTANCE_DIRECTORY!=null) {
+			InstanceCache.setBinaryDirectory(Paths.get(BINARY_INSTANCE_DIRECTORY));
+		}
+
+		//Solver threads are only used when runs are not executed concurrently
+		boolean solverParallelism = PARALLELISM==Parallelism.SOLVER;
+		int threadCount = solverParallelism ? THREAD_COUNT : 1;
+		ExecutorService executorService = !solverParallelism ? new DirectExecutorService() :
+				WORK_STEALING ? new ForkJoinPool(THREAD_COUNT) : ExecutorServiceProvider.getNewExecutorService(THREAD_COUNT);
+		ForkJoinPool neighborhoodPool = solverParallelism && NEIGHBORHOOD_THREAD_COUNT>1 ? 
+				new ForkJoinPool(NEIGHBORHOOD_THREAD_COUNT) : null;
+
+		long masterSeed = SEED!=0 ? SEED : RandomStreams.newSeed();
+		output.println("Master seed: "+masterSeed);
 
 		try {
-			for(boolean shuffle:SHUFFLE_NEIGHBORHOODS_OPTIONS) {
-				SHUFFLE_NEIGHBORHOODS = shuffle;
+			List<String> instances = getInstanceNames();
+			List<RunConfiguration> runs = new ArrayList<>();
+			//the adaptive order replaces the shuffle option
+			for(boolean shuffle:ADAPTIVE_ORDERING ? new boolean[] {false} : SHUFFLE_NEIGHBORHOODS_OPTIONS) {
 				for(Type type:TYPE_OPTIONS) {
-					TYPE = type;
 					for(int i=0; i<REPETITION_COUNT; i++) {
-						if(ALGORITHM.equals(Algorithm.POP_VND)) {
+						if(ALGORITHM.hasPopulation()) {
 							for(int pop=MIN_POPULATION_SIZE; pop<=MAX_POPULATION_SIZE;pop++) {
-								POPULATION_SIZE = pop;
-									runAllInstances(output);
+								for(String name:instances) {
+									runs.add(configure(new RunConfiguration(ALGORITHM, type, shuffle, pop, threadCount, i, name), masterSeed));
+								}
 							}
 						}
 						else {
-							runAllInstances(output);
+							for(String name:instances) {
+								runs.add(configure(new RunConfiguration(ALGORITHM, type, shuffle, 0, threadCount, i, name), masterSeed));
+							}
 						}
 					}
 				}
 			}
+
+			GridRunner gridRunner = new GridRunner(PARALLELISM, GRID_THREAD_COUNT);
+			gridRunner.run(runs, run -> runInstance(resultWriter, metricsWriter, run, executorService, neighborhoodPool));
 		}
 		finally {
 			executorService.shutdown();
+			if(neighborhoodPool!=null) {
+				neighborhoodPool.shutdown();
+			}
 		}
 		
 	}
 
-	private static void runAllInstances(PrintStream output) throws IOException, FileNotFoundException {
-		for (String name : Files.list(Paths.get("data/")).map(p -> p.toFile().getName().replaceAll(".vrp", ""))
-				.filter(n -> !n.endsWith(".opt")).collect(Collectors.toList())) {
-			runInstance(output, name);
-		}
+	/**
+	 * Applies the options of this class, the run seed is derived from the master seed and the run description
+	 * so a run keeps its seed when the grid changes.
+	 */
+	private static RunConfiguration configure(RunConfiguration run, long masterSeed) {
+		RunConfiguration configured = run.withCandidateLists(CANDIDATE_LIST_SIZE, WIDEN_CANDIDATE_LISTS)
+				.withConstruction(CONSTRUCTION)
+				.withBudget(TIME_LIMIT_MILLIS, ITERATION_LIMIT)
+				.withFingerprints(DEDUPLICATE_NEIGHBORS, VISITED_SET_SIZE)
+				.withWorkStealing(WORK_STEALING)
+				.withPairMemory(PAIR_MEMORY_SIZE)
+				.withRouteCache(ROUTE_CACHE_SIZE)
+				.withAdaptiveOrdering(ADAPTIVE_ORDERING);
+		//the seed does not depend on how the grid is executed
+		int concurrentRuns = PARALLELISM==Parallelism.RUN ? GRID_THREAD_COUNT : 1;
+		return configured.withSeed(RandomStreams.derive(masterSeed, configured.toString().hashCode()))
+				.withConcurrentRuns(concurrentRuns);
 	}
 
-	private static void runInstance(PrintStream output, String name) throws IOException, FileNotFoundException {
-		String inFileName = "data/"+name+".vrp";
-		output.println(inFileName);
-		
+	private static List<String> getInstanceNames() throws IOException {
+		return Files.list(Paths.get("data/")).map(p -> p.toFile().getName().replaceAll(".vrp", ""))
+				.filter(n -> !n.endsWith(".opt")).collect(Collectors.toList());
+	}
+
+	private static void runInstance(ResultWriter resultWriter, MetricsWriter metricsWriter, RunConfiguration run, 
+			ExecutorService executorService, ForkJoinPool neighborhoodPool) throws IOException {
 		// Get problem description
-		CVRPDescription description = CVRPDescription.getDescription(inFileName);
+		CVRPDescription description = InstanceCache.getDescription(run.getInstanceFileName());
+
+		SearchMetrics metrics = metricsWriter!=null ? new SearchMetrics() : null;
 
 		//Start measuring time
 		long startTime = System.nanoTime();
 		
-		DemandRoutesSolution routes = StartSolution.getInitialSolution(description);
-		switch (ALGORITHM) {
+		DemandRoutesSolution routes = StartSolution.getInitialSolution(description, run.construction);
+		switch (run.algorithm) {
 			case POP_VND:
-				routes = optimizeISVND(routes,description);
+				routes = Solvers.optimizeISVND(routes,description,run,executorService,neighborhoodPool,
+						run.newBudget(),new Incumbent(),metrics);
+				break;
+
+			case SA_POP_VND:
+				routes = Solvers.optimizeHybrid(routes,description,run,executorService,neighborhoodPool,
+						run.newBudget(),new Incumbent(),metrics);
 				break;
 				
 			case VND:
-				routes = optimizeVND(routes,description);
+				routes = Solvers.optimizeVND(routes,description,run,neighborhoodPool,
+						run.newBudget(),new Incumbent(),metrics);
+				break;
+
+			case SA:
+				routes = PVND_SA_Main.solve(routes,description,run.newBudget(),new Incumbent(),run.seed,metrics);
 				break;
 				
 			default:
-				break;
+				throw new IllegalArgumentException("Unsupported algorithm "+run.algorithm);
 		}
 		
 		//Stop measuring time
 		long endTime = System.nanoTime();
 
-		// Solution presentation
-		double length = routes.getLength();
+		// Solution presentation and storage
 		double time = (endTime-startTime)*1e-6;
-
-		Utilities.presentSolution(output, routes, time, routes.length);
-		
-		//Store solution file
-		if(SAVE_RESULT) {
-			String outFileName = "output/"+ALGORITHM.toString().toLowerCase()+"/";
-			if(ALGORITHM.equals(Algorithm.POP_VND)) {
-				outFileName+=Integer.toString(POPULATION_SIZE)+"/";
-			}
-			outFileName+="shuff_"+SHUFFLE_NEIGHBORHOODS+"/";
-			outFileName+="type_"+TYPE+"/";
-			if(ALGORITHM.equals(Algorithm.POP_VND)) {
-				outFileName+="thread_"+THREAD_COUNT+"/";
-			}
-			outFileName+=name+".txt";
-			File outputFile = new File(outFileName);
-			if(!outputFile.exists()) {
-				outputFile.getParentFile().mkdirs();
-				outputFile.createNewFile();
-			}
-			String line = time+","+length+"\n";
-			Files.write(outputFile.toPath(), line.getBytes(), StandardOpenOption.APPEND);
-		}
-	}
-
-
-	private static DemandRoutesSolution optimizeVND(DemandRoutesSolution routes, CVRPDescription description) {
-		DemandRoutesSolution startSolution = routes;
-		
-		// Decoded
-		IDecoder<DemandRoutesSolution, DemandRoutesSolution> decoder = new PassThroughDecoder<>();
-		
-		// Evaluator
-		IFitnessEvaluator<DemandRoutesSolution> evaluator = new NegateFitnessEvaluator<>(new FunctionValueFitnessEvaluator<>());
-		
-		//Function
-		ID1Function<DemandRoutesSolution> function = (s)->s.length;
-
-		//Neighborhood Selection
-		INeighborSelection<DemandRoutesSolution> neighborhoodSelection = null;
-		switch (TYPE) {
-			case BEST:
-				neighborhoodSelection = new SelectBestImprovingNeighbor<>();
-				break;
-			case FIRST:
-				neighborhoodSelection = new SelectFirstImprovingNeighbor<>();
-				break;
-			case RANDOM:
-				neighborhoodSelection = new SelectRandomImprovingNeighbor<>();
-				break;
-			default:
-				break;
-		}
-				
-		//Neighborhoods
-		Function<DemandRoutesSolution, Predicate<DemandRoutesSolution>> acceptanceTest = s -> n -> n.length<s.length;
-		
-		INeighborhood<DemandRoutesSolution> neighborhood1 = new MergeRoutes(description,acceptanceTest);
-		
-		INeighborhood<DemandRoutesSolution> neighborhood2 = new ChangeStationRoute(description,acceptanceTest);
-
-		INeighborhood<DemandRoutesSolution> neighborhood3 = new SwapStations(description,acceptanceTest);
-
-		List<INeighborhood<DemandRoutesSolution>> neghborhoods = Arrays.asList(
-				neighborhood1, neighborhood2,neighborhood3 
-		);		
-		
-		//Optimization algorithm
-		VariableNeighborhoodDescent<DemandRoutesSolution, DemandRoutesSolution> optimization = new VariableNeighborhoodDescent<>(
-				startSolution, decoder, neghborhoods, SHUFFLE_NEIGHBORHOODS, evaluator, neighborhoodSelection, function);
-
-		DemandRoutesSolution solution = optimization.run();
-		
-		//remove empty routes
-		solution.removeEmptyRoutes();
-		
-		return solution;
-	}
-	
-	//==============================================================================================================================
-
-	private static DemandRoutesSolution optimizeISVND(DemandRoutesSolution routes, CVRPDescription description) {
-		
-		//Comparator
-		Comparator<DemandRoutesSolution> comparator = (r1,r2)-> Double.compare(r1.length, r2.length);
-
-		//Neighborhood Selection
-		IPopulationSelection_V2<DemandRoutesSolution> populationSelection = null;
-		switch (TYPE) {
-
-			case BEST:
-				populationSelection = new BestMSelection<>(comparator);
-				break;
-			case FIRST:
-				populationSelection = new FirstMSelection<>();
-				break;
-			case RANDOM:
-				populationSelection = new RandomMSelection<>();
-				break;
-			default:
-				break;
-		}
-		
-		NeighborAcceptanceTest<DemandRoutesSolution> neighborAcceptanceTest = new BetterThanBestInPopulation<DemandRoutesSolution>(comparator);
-			
-		NeighborhoodMaintenance<DemandRoutesSolution> neighborhoodMaintenance = null;
-		switch (TYPE) {
-			case BEST:
-				neighborhoodMaintenance = new BestMMaintenance<>(POPULATION_SIZE, comparator);
-				break;
-			case FIRST:
-				neighborhoodMaintenance = new FirstMMaintenance<>(POPULATION_SIZE);
-				break;
-			case RANDOM:
-				neighborhoodMaintenance = new RandomMMaintenance<>(POPULATION_SIZE);
-				break;
-			default:
-				break;
+		resultWriter.write(run, routes, time);
+		if(metrics!=null) {
+			metricsWriter.write(run, metrics, time);
 		}
-		
-		//Neighborhoods
-		INeighborhood_V2<DemandRoutesSolution> neighborhood1 = new MergeRoutes_V2(description, neighborAcceptanceTest, neighborhoodMaintenance);
-		
-		INeighborhood_V2<DemandRoutesSolution> neighborhood2 = new ChangeStationRoute_V2(description, neighborAcceptanceTest, neighborhoodMaintenance);
-
-		INeighborhood_V2<DemandRoutesSolution> neighborhood3 = new SwapStations_V2(description, neighborAcceptanceTest, neighborhoodMaintenance);
-
-		List<INeighborhood_V2<DemandRoutesSolution>> neghborhoods = Arrays.asList(
-				neighborhood1,neighborhood2,neighborhood3
-		);		
-		
-		ImmuneSystemVariableNeighborhoodDescent_V2<DemandRoutesSolution, DemandRoutesSolution> optimization = 
-				new ImmuneSystemVariableNeighborhoodDescent_V2<>(POPULATION_SIZE, SHUFFLE_NEIGHBORHOODS, 
-						()->routes, neghborhoods, populationSelection, new BestSolutionSelection<>(comparator), 
-						executorService);
-
-		DemandRoutesSolution solution = optimization.run();
-		
-		//remove empty routes
-		solution.removeEmptyRoutes();
-		
-		return solution;
 	}
 
 }
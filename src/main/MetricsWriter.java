@@ -0,0 +1,47 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import common.metrics.SearchMetrics;
+
+/**
+ * Stores the search metrics of concurrently finishing runs. </br>
+ * Every run appends a JSON line next to its result file under output/metrics/ 
+ * and a row to output/metrics/metrics.csv. Writes are serialized so lines never interleave.
+ */
+public class MetricsWriter {
+	
+	private static final String CSV_FILE_NAME = "output/metrics/metrics.csv";
+	private static final String CSV_RUN_HEADER = "algorithm,type,shuffle,population,threads,repetition,instance,k,start,time";
+
+	public synchronized void write(RunConfiguration configuration, SearchMetrics metrics, double time) throws IOException {
+		String json = "{\"repetition\":"+configuration.repetition+",\"time\":"+time+",\"metrics\":"+metrics.toJson()+"}\n";
+		append(new File(getJsonFileName(configuration)), null, json);
+		
+		String row = configuration.algorithm+","+configuration.type+","+configuration.shuffleNeighborhoods+","
+				+configuration.populationSize+","+configuration.threadCount+","+configuration.repetition+","
+				+configuration.instanceName+","+configuration.candidateListSize+","+configuration.construction+","
+				+time+","+metrics.toCsvRow()+"\n";
+		append(new File(CSV_FILE_NAME), CSV_RUN_HEADER+","+SearchMetrics.getCsvHeader()+"\n", row);
+	}
+
+	/**
+	 * Returns the JSON lines file of the run, placed like its result file.
+	 */
+	public static String getJsonFileName(RunConfiguration configuration) {
+		return configuration.getOutputFileName().replaceFirst("^output/", "output/metrics/").replaceAll("\\.txt$", ".jsonl");
+	}
+
+	private static void append(File file, String header, String line) throws IOException {
+		if(!file.exists()) {
+			file.getParentFile().mkdirs();
+			file.createNewFile();
+			if(header!=null)
+				Files.write(file.toPath(), header.getBytes(), StandardOpenOption.APPEND);
+		}
+		Files.write(file.toPath(), line.getBytes(), StandardOpenOption.APPEND);
+	}
+}
@@ -0,0 +1,11 @@
+package main;
+
+/**
+ * Where the available threads are spent when running an experiment grid.
+ */
+public enum Parallelism{
+	/** Independent runs are executed concurrently, each solver runs on a single thread */
+	RUN,
+	/** Runs are executed one after the other, each solver uses all threads */
+	SOLVER;
+}
@@ -1,130 +1,289 @@
 package main;
 
-import java.io.File;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import utilities.PStrings;
 
+/**
+ * Aggregates every result file of the output tree into a single table. </br>
+ * Configuration directories are scanned in parallel and every result file is read exactly once;
+ * time and distance statistics are accumulated while reading (see {@link RunningStatistics}).
+ * Each row holds the statistics of one configuration and instance, the gap of the trimmed mean distance
+ * to the .opt cost and the number of runs better/equal/worse than the trimmed mean of VND
+ * with the same shuffling, type and remaining options.
+ */
 public class ResultStats {
-	
-	private static enum ResultType{
-		Time, Distance;
-	}
-	
-	private static int POPULATION_SIZE; 
-	//
-	private static final int THREAD_COUNT = 1;
-	private static final int MIN_POPULATION_SIZE = 2;
-	private static final int MAX_POPULATION_SIZE = 15; 
-	private static final Algorithm ALGORITHM = Algorithm.POP_VND;
-	private static final Type TYPE = Type.FIRST;
-	private static final boolean SHUFFLE_NEIGHBORHOODS = false;
-	private static final ResultType RESULT_TYPE = ResultType.Distance; 
-	private static final int devCount = 3;
-	
-	
+
+	private static final String OUTPUT_DIRECTORY = "output/";
+	private static final String DATA_DIRECTORY = "data/";
+	private static final int DEV_COUNT = 3;
+	private static final double EQUAL_TOLERANCE = 1e-6;
+	private static final int PRECISION = 4;
+
+	private static final String[] HEADER = new String[] {"algorithm","population","shuffle","type","threads","variant",
+			"instance","runs","time_mean","time_std","time_trimmed","distance_mean","distance_std","distance_trimmed",
+			"distance_min","opt","gap_percent","vnd_better","vnd_equal","vnd_worse"};
+
 	public static void main(String[] args) throws IOException {
-		if(ALGORITHM==Algorithm.VND) {
-			runInstance();
-		}
-		else {
-			for(int population_size=MIN_POPULATION_SIZE; population_size<=MAX_POPULATION_SIZE; population_size++) {
-				POPULATION_SIZE = population_size;
-				runInstance();
-				System.out.println("\n\n");
+		print(System.out, aggregate(Paths.get(OUTPUT_DIRECTORY), Paths.get(DATA_DIRECTORY), c -> true));
+	}
+
+	/**
+	 * Reads all result files below the output directory whose configuration passes the filter 
+	 * and returns one row per configuration and instance, ordered by configuration and instance size.
+	 * VND results are always read since they are the reference of the comparison.
+	 */
+	public static List<Row> aggregate(Path outputDirectory, Path dataDirectory, Predicate<Configuration> filter) throws IOException {
+		Map<String, Double> optimalCosts = readOptimalCosts(dataDirectory);
+
+		List<Path> directories;
+		try(Stream<Path> paths = Files.walk(outputDirectory)){
+			directories = paths.filter(Files::isDirectory).collect(Collectors.toList());
+		}
+
+		List<Row> rows;
+		try {
+			rows = directories.parallelStream()
+					.flatMap(directory -> readDirectory(outputDirectory, directory, filter).stream())
+					.collect(Collectors.toList());
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		//VND references of the same options, compared against the values kept in memory
+		Map<String, Row> references = new HashMap<>();
+		for(Row row:rows) {
+			if(row.configuration.isVND())
+				references.put(row.getReferenceKey(), row);
+		}
+		rows.removeIf(row -> !filter.test(row.configuration));
+		for(Row row:rows) {
+			row.opt = optimalCosts.getOrDefault(row.instance, Double.NaN);
+			Row reference = references.get(row.getReferenceKey());
+			if(reference!=null && reference!=row) {
+				row.vndComparison = row.distance.compareTo(reference.distance.getTrimmedMean(DEV_COUNT), EQUAL_TOLERANCE);
 			}
 		}
+
+		rows.sort(Comparator.comparing((Row r) -> r.configuration.algorithm)
+				.thenComparingInt(r -> r.configuration.population.equals("-") ? 0 : Integer.parseInt(r.configuration.population))
+				.thenComparing(r -> r.configuration.toString())
+				.thenComparing(r -> r.instance, ResultStats::compareInstances));
+		return rows;
 	}
 
-	private static void runInstance() throws IOException {
-		//used to order instance files
-		Comparator<File> fileOrderComparator = (f1,f2)->{
-			String[] data1 = f1.getName().split("-");
-			String[] data2 = f2.getName().split("-");
-			
-			int n1 = Integer.parseInt(data1[1].replaceAll("n", "").trim());
-			int n2 = Integer.parseInt(data2[1].replaceAll("n", "").trim());
-			
-			int k1 = Integer.parseInt(data1[2].split("\\.")[0].replaceAll(".vrp", "").replaceAll(".opt", "").replaceAll("k", "").trim());
-			int k2 = Integer.parseInt(data2[2].split("\\.")[0].replaceAll(".vrp", "").replaceAll(".opt", "").replaceAll("k", "").trim());
-			
-			int res = Integer.compare(n1, n2);
-			
-			return res==0 ? Integer.compare(k1, k2) : res;
-		};
-		
-		//Loading instance files
-		List<File> instanceFiles = Files.list(Paths.get("data/")).map(Path::toFile).sorted(fileOrderComparator).collect(Collectors.toList());
-		
-		//For each instance
-		for (File file : instanceFiles) {
-			
-			String instanceId = file.getName();
-			if(instanceId.endsWith(".opt"))
-				continue;
-
-			String outFileName = "output/"+ALGORITHM.toString().toLowerCase()+"/";
-			if(ALGORITHM.equals(Algorithm.POP_VND)) {
-				outFileName+=Integer.toString(POPULATION_SIZE)+"/";
-			}
-			outFileName+="shuff_"+SHUFFLE_NEIGHBORHOODS+"/";
-			outFileName+="type_"+TYPE+"/";
-			if(ALGORITHM.equals(Algorithm.POP_VND)) {
-				outFileName+="thread_"+THREAD_COUNT+"/";
+	public static void print(PrintStream output, List<Row> rows) {
+		output.println(String.join("\t", HEADER));
+		for(Row row:rows) {
+			output.println(row.toString());
+		}
+	}
+
+	//================================================================================================
+
+	private static List<Row> readDirectory(Path outputDirectory, Path directory, Predicate<Configuration> filter) {
+		Configuration configuration = Configuration.parse(outputDirectory.relativize(directory));
+		List<Row> rows = new ArrayList<>();
+		if(configuration==null || !(filter.test(configuration) || configuration.isVND()))
+			return rows;
+
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.txt")){
+			for(Path file:files) {
+				if(Files.isRegularFile(file)) {
+					rows.add(readResults(configuration, file));
+				}
 			}
-			outFileName+=instanceId.replace(".vrp", ".txt");
-
-			//Loading all result files			
-			List<Double> times = new ArrayList<>();
-			List<Double> distances = new ArrayList<>();
-			
-			for (String line : Files.lines(Paths.get(outFileName)).collect(Collectors.toList())) {
-				if(line.isEmpty())
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return rows;
+	}
+
+	/**
+	 * Reads the "time,length" lines of a single result file, newer lines also end with the run seed.
+	 */
+	private static Row readResults(Configuration configuration, Path file) throws IOException {
+		Row row = new Row(configuration, file.getFileName().toString().replace(".txt", ""));
+		try(BufferedReader reader = Files.newBufferedReader(file)){
+			String line;
+			while((line = reader.readLine())!=null) {
+				int separator = line.indexOf(',');
+				if(separator<0)
 					continue;
-				
-				String[] split = line.split(",");
-				double time = Double.parseDouble(split[0]);
-				double distance = Double.parseDouble(split[1]);
-				
-				times.add(new Double(time));
-				distances.add(new Double(distance));
+				row.time.add(Double.parseDouble(line.substring(0, separator)));
+				int end = line.indexOf(',', separator+1);
+				row.distance.add(Double.parseDouble(line.substring(separator+1, end<0 ? line.length() : end).trim()));
 			}
-			
-			if(RESULT_TYPE==ResultType.Time) {
-				//Time analysis
-				double averageTime = times.stream().mapToDouble(Double::doubleValue).average().getAsDouble();
-				double standardDeviationTime = getStandardDeviation(times, averageTime);
-				
-				double avgT = times.stream().mapToDouble(Double::doubleValue).filter(v->Math.abs(averageTime-v)<=devCount*standardDeviationTime).average().getAsDouble();
-				System.out.print(PStrings.getRounded(4, avgT)+"\t");
+		}
+		return row;
+	}
+
+	/**
+	 * Returns the optimal cost of every instance with a .opt file in the directory, by instance name.
+	 */
+	public static Map<String, Double> readOptimalCosts(Path dataDirectory) throws IOException {
+		Map<String, Double> costs = new HashMap<>();
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(dataDirectory, "*.opt")){
+			for(Path file:files) {
+				try(BufferedReader reader = Files.newBufferedReader(file)){
+					String line;
+					while((line = reader.readLine())!=null) {
+						line = line.trim();
+						if(line.startsWith("cost")) {
+							costs.put(file.getFileName().toString().replace(".opt", ""),
+									Double.valueOf(line.substring(4).trim()));
+							break;
+						}
+					}
+				}
 			}
-			else {
-				//Distance analysis
-				double averageDistance = distances.stream().mapToDouble(Double::doubleValue).average().getAsDouble();
-				//System.out.print(PStrings.getRounded(4, averageDistance)+"\t");
-				double standardDeviationDistance = getStandardDeviation(distances, averageDistance);
-				
-				double avgD = distances.stream().mapToDouble(Double::doubleValue).filter(v->Math.abs(averageDistance-v)<=devCount*standardDeviationDistance).average().getAsDouble();
-				System.out.print(PStrings.getRounded(4, avgD)+"\t");
+		}
+		return costs;
+	}
+
+	/**
+	 * Orders instances named like P-n40-k5 by the number of nodes and then the number of vehicles.
+	 */
+	private static int compareInstances(String instance1, String instance2) {
+		String[] data1 = instance1.split("-");
+		String[] data2 = instance2.split("-");
+		try {
+			int res = Integer.compare(Integer.parseInt(data1[1].replace("n", "")), Integer.parseInt(data2[1].replace("n", "")));
+			return res==0 ? Integer.compare(Integer.parseInt(data1[2].replace("k", "")), Integer.parseInt(data2[2].replace("k", ""))) : res;
+		}
+		catch (RuntimeException e) {
+			return instance1.compareTo(instance2);
+		}
+	}
+
+	private static String format(double value) {
+		return Double.isNaN(value) ? "-" : PStrings.getRounded(PRECISION, value);
+	}
+
+	//================================================================================================
+
+	/**
+	 * Options of a result directory, see {@link RunConfiguration#getOutputFileName()}.
+	 */
+	public static final class Configuration{
+
+		public final String algorithm;
+		public final String population;
+		public final String shuffle;
+		public final String type;
+		public final String threads;
+		public final String variant; //remaining directories (candidate lists, start solution, limits)
+
+		private Configuration(String algorithm, String population, String shuffle, String type, String threads,
+				String variant) {
+			this.algorithm = algorithm;
+			this.population = population;
+			this.shuffle = shuffle;
+			this.type = type;
+			this.threads = threads;
+			this.variant = variant;
+		}
+
+		/**
+		 * Returns the configuration of a directory relative to the output directory
+		 * or null if it does not hold results (metrics, binary instances).
+		 */
+		public static Configuration parse(Path relativeDirectory) {
+			if(relativeDirectory.getNameCount()==0)
+				return null;
+			String algorithm = relativeDirectory.getName(0).toString();
+			if(!isResultDirectory(algorithm))
+				return null;
+
+			String population = "-";
+			String shuffle = "-";
+			String type = "-";
+			String threads = "-";
+			List<String> variant = new ArrayList<>();
+			for(int i=1; i<relativeDirectory.getNameCount(); i++) {
+				String name = relativeDirectory.getName(i).toString();
+				if(i==1 && name.chars().allMatch(Character::isDigit))
+					population = name;
+				else if(name.startsWith("shuff_"))
+					shuffle = name.substring("shuff_".length());
+				else if(name.startsWith("type_"))
+					type = name.substring("type_".length());
+				else if(name.startsWith("thread_"))
+					threads = name.substring("thread_".length());
+				else
+					variant.add(name);
 			}
+			return new Configuration(algorithm, population, shuffle, type, threads,
+					variant.isEmpty() ? "-" : String.join("/", variant));
+		}
+
+		public boolean isVND() {
+			return algorithm.equals(Algorithm.VND.toString().toLowerCase());
+		}
+
+		private static boolean isResultDirectory(String name) {
+			if(name.equals("sa"))
+				return true;
+			for(Algorithm algorithm:Algorithm.values()) {
+				if(algorithm.toString().toLowerCase().equals(name))
+					return true;
+			}
+			return false;
+		}
+
+		@Override
+		public String toString() {
+			return algorithm+"\t"+population+"\t"+shuffle+"\t"+type+"\t"+threads+"\t"+variant;
 		}
-		
 	}
 
-	private static double getStandardDeviation(List<Double> values, double mean) {
-		double standardDeviation = 0;
-		for(Double time:values) {
-			standardDeviation += Math.pow(time.doubleValue()-mean, 2);
+	public static final class Row{
+
+		public final Configuration configuration;
+		public final String instance;
+		public final RunningStatistics time = new RunningStatistics();
+		public final RunningStatistics distance = new RunningStatistics();
+		private double opt = Double.NaN;
+		private int[] vndComparison = null;
+
+		private Row(Configuration configuration, String instance) {
+			this.configuration = configuration;
+			this.instance = instance;
+		}
+
+		private String getReferenceKey() {
+			return configuration.shuffle+"/"+configuration.type+"/"+configuration.variant+"/"+instance;
+		}
+
+		/**
+		 * Percentage by which the trimmed mean distance exceeds the .opt cost.
+		 */
+		public double getGap() {
+			return (distance.getTrimmedMean(DEV_COUNT)-opt)/opt*100;
+		}
+
+		@Override
+		public String toString() {
+			return configuration+"\t"+instance+"\t"+time.getCount()
+				+"\t"+format(time.getMean())+"\t"+format(time.getStandardDeviation())+"\t"+format(time.getTrimmedMean(DEV_COUNT))
+				+"\t"+format(distance.getMean())+"\t"+format(distance.getStandardDeviation())+"\t"+format(distance.getTrimmedMean(DEV_COUNT))
+				+"\t"+format(distance.getMin())+"\t"+format(opt)+"\t"+format(getGap())
+				+"\t"+(vndComparison==null ? "-\t-\t-" : vndComparison[0]+"\t"+vndComparison[1]+"\t"+vndComparison[2]);
 		}
-		standardDeviation/=values.size();
-		standardDeviation = Math.sqrt(standardDeviation);
-		return standardDeviation;
 	}
 }
@@ -0,0 +1,52 @@
+package main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import heuristic.routing.cvrp.DemandRoutesSolution;
+import utility.Utilities;
+
+/**
+ * Single point through which concurrently finishing runs present and store their results. </br>
+ * Writes are serialized so console blocks and result file lines never interleave.
+ */
+public class ResultWriter {
+
+	private final PrintStream output;
+	private final boolean saveResult;
+
+	public ResultWriter(PrintStream output, boolean saveResult) {
+		this.output = output;
+		this.saveResult = saveResult;
+	}
+
+	public void write(RunConfiguration configuration, DemandRoutesSolution routes, double time) throws IOException {
+		double length = routes.getLength();
+
+		//Prepare the presentation outside of the lock
+		ByteArrayOutputStream presentation = new ByteArrayOutputStream();
+		try(PrintStream presentationStream = new PrintStream(presentation)){
+			presentationStream.println(configuration.getInstanceFileName());
+			Utilities.presentSolution(presentationStream, routes, time, length);
+		}
+
+		synchronized (this) {
+			output.print(presentation.toString());
+			output.flush();
+			
+			if(saveResult) {
+				File outputFile = new File(configuration.getOutputFileName());
+				if(!outputFile.exists()) {
+					outputFile.getParentFile().mkdirs();
+					outputFile.createNewFile();
+				}
+				String line = time+","+length+","+configuration.seed+"\n";
+				Files.write(outputFile.toPath(), line.getBytes(), StandardOpenOption.APPEND);
+			}
+		}
+	}
+}
@@ -0,0 +1,295 @@
+package main;
+
+import common.anytime.Budget;
+import common.construction.Construction;
+
+/**
+ * Immutable description of a single experiment run.
+ */
+public final class RunConfiguration {
+
+	public final Algorithm algorithm;
+	public final Type type;
+	public final boolean shuffleNeighborhoods;
+	public final int populationSize;
+	public final int threadCount;
+	public final int repetition;
+	public final String instanceName;
+	public final int concurrentRuns; //runs of the grid executed at the same time, 1 when runs are sequential
+	public final int candidateListSize; //0 uses the full neighborhood
+	public final boolean widenCandidateLists;
+	public final Construction construction;
+	public final long timeLimitMillis; //0 for no limit
+	public final long iterationLimit; //0 for no limit
+	public final boolean deduplicateNeighbors;
+	public final int visitedSetSize; //0 disables the visited set
+	public final boolean workStealing; //POP-VND members scheduled on a fork join pool, see WorkStealingPopulationDescent
+	public final int pairMemorySize; //route pairs remembered per neighborhood, 0 disables the pair memory
+	public final int routeCacheSize; //solved routes remembered by the run, 0 disables the route cache
+	public final boolean adaptiveOrdering; //neighborhoods ordered by AdaptiveOrder instead of the fixed or shuffled order
+	public final long seed; //random streams of the run are split from it, 0 draws a new seed
+
+	public RunConfiguration(Algorithm algorithm, Type type, boolean shuffleNeighborhoods, int populationSize,
+			int threadCount, int repetition, String instanceName) {
+		this(new Options(algorithm, type, shuffleNeighborhoods, populationSize, threadCount, repetition, instanceName));
+	}
+
+	private RunConfiguration(Options options) {
+		this.algorithm = options.algorithm;
+		this.type = options.type;
+		this.shuffleNeighborhoods = options.shuffleNeighborhoods;
+		this.populationSize = options.populationSize;
+		this.threadCount = options.threadCount;
+		this.repetition = options.repetition;
+		this.instanceName = options.instanceName;
+		this.concurrentRuns = options.concurrentRuns;
+		this.candidateListSize = options.candidateListSize;
+		this.widenCandidateLists = options.widenCandidateLists;
+		this.construction = options.construction;
+		this.timeLimitMillis = options.timeLimitMillis;
+		this.iterationLimit = options.iterationLimit;
+		this.deduplicateNeighbors = options.deduplicateNeighbors;
+		this.visitedSetSize = options.visitedSetSize;
+		this.workStealing = options.workStealing;
+		this.pairMemorySize = options.pairMemorySize;
+		this.routeCacheSize = options.routeCacheSize;
+		this.adaptiveOrdering = options.adaptiveOrdering;
+		this.seed = options.seed;
+	}
+
+	/**
+	 * Returns a copy of this run executed next to the given number of concurrent runs in total (1 when runs are sequential),
+	 * their run times are not comparable to the times of sequential runs.
+	 */
+	public RunConfiguration withConcurrentRuns(int concurrentRuns) {
+		Options options = new Options(this);
+		options.concurrentRuns = Math.max(1, concurrentRuns);
+		return new RunConfiguration(options);
+	}
+
+	/**
+	 * Returns a copy of this run restricting swap and relocate moves to the k nearest customers (0 uses the full neighborhood).
+	 */
+	public RunConfiguration withCandidateLists(int candidateListSize, boolean widenCandidateLists) {
+		Options options = new Options(this);
+		options.candidateListSize = candidateListSize;
+		options.widenCandidateLists = widenCandidateLists;
+		return new RunConfiguration(options);
+	}
+
+	/**
+	 * Returns a copy of this run starting from the given construction.
+	 */
+	public RunConfiguration withConstruction(Construction construction) {
+		Options options = new Options(this);
+		options.construction = construction;
+		return new RunConfiguration(options);
+	}
+
+	/**
+	 * Returns a copy of this run stopped after the given time and number of iterations (0 for no limit).
+	 */
+	public RunConfiguration withBudget(long timeLimitMillis, long iterationLimit) {
+		Options options = new Options(this);
+		options.timeLimitMillis = timeLimitMillis;
+		options.iterationLimit = iterationLimit;
+		return new RunConfiguration(options);
+	}
+
+	/**
+	 * Returns a copy of this run dropping duplicate neighbors and skipping members whose neighborhood was already 
+	 * generated, remembering up to visitedSetSize of them (0 disables the visited set).
+	 */
+	public RunConfiguration withFingerprints(boolean deduplicateNeighbors, int visitedSetSize) {
+		Options options = new Options(this);
+		options.deduplicateNeighbors = deduplicateNeighbors;
+		options.visitedSetSize = visitedSetSize;
+		return new RunConfiguration(options);
+	}
+
+	/**
+	 * Returns a copy of this run scheduling the population members of POP-VND on a work stealing pool,
+	 * and stopping the other members once FIRST has enough neighbors.
+	 */
+	public RunConfiguration withWorkStealing(boolean workStealing) {
+		Options options = new Options(this);
+		options.workStealing = workStealing;
+		return new RunConfiguration(options);
+	}
+
+	/**
+	 * Returns a copy of this run skipping route pairs whose best move is known not to be accepted,
+	 * remembering up to pairMemorySize pairs per neighborhood (0 disables the pair memory).
+	 */
+	public RunConfiguration withPairMemory(int pairMemorySize) {
+		Options options = new Options(this);
+		options.pairMemorySize = pairMemorySize;
+		return new RunConfiguration(options);
+	}
+
+	/**
+	 * Returns a copy of this run reusing the routes it already solved,
+	 * remembering up to routeCacheSize of them (0 disables the route cache).
+	 */
+	public RunConfiguration withRouteCache(int routeCacheSize) {
+		Options options = new Options(this);
+		options.routeCacheSize = routeCacheSize;
+		return new RunConfiguration(options);
+	}
+
+	/**
+	 * Returns a copy of this run scanning the neighborhoods in the order of their observed improvements per second 
+	 * instead of the fixed or shuffled order.
+	 */
+	public RunConfiguration withAdaptiveOrdering(boolean adaptiveOrdering) {
+		Options options = new Options(this);
+		options.adaptiveOrdering = adaptiveOrdering;
+		return new RunConfiguration(options);
+	}
+
+	/**
+	 * Returns a copy of this run whose random streams are split from the given seed (0 draws a new seed per solve),
+	 * see RandomStreams for what replays bit for bit.
+	 */
+	public RunConfiguration withSeed(long seed) {
+		Options options = new Options(this);
+		options.seed = seed;
+		return new RunConfiguration(options);
+	}
+
+	/**
+	 * Returns a new budget for this run, starting now.
+	 */
+	public Budget newBudget() {
+		return new Budget(timeLimitMillis, iterationLimit);
+	}
+
+	public String getInstanceFileName() {
+		return "data/"+instanceName+".vrp";
+	}
+
+	/**
+	 * Returns the file the run result is appended to.
+	 */
+	public String getOutputFileName() {
+		String outFileName = "output/"+algorithm.toString().toLowerCase()+"/";
+		if(algorithm.hasPopulation()) {
+			outFileName+=Integer.toString(populationSize)+"/";
+		}
+		outFileName+="shuff_"+shuffleNeighborhoods+"/";
+		outFileName+="type_"+type+"/";
+		if(algorithm.hasPopulation()) {
+			outFileName+="thread_"+threadCount+"/";
+		}
+		if(candidateListSize>0) {
+			outFileName+="k_"+candidateListSize+(widenCandidateLists ? "_widen" : "")+"/";
+		}
+		if(construction!=Construction.SINGLETON) {
+			outFileName+="start_"+construction+"/";
+		}
+		if(timeLimitMillis>0) {
+			outFileName+="limit_"+timeLimitMillis+"ms/";
+		}
+		if(iterationLimit>0) {
+			outFileName+="iterations_"+iterationLimit+"/";
+		}
+		if(deduplicateNeighbors) {
+			outFileName+="dedup/";
+		}
+		if(visitedSetSize>0) {
+			outFileName+="visited_"+visitedSetSize+"/";
+		}
+		if(workStealing && algorithm.hasPopulation()) {
+			outFileName+="steal/";
+		}
+		if(pairMemorySize>0) {
+			outFileName+="memory_"+pairMemorySize+"/";
+		}
+		if(routeCacheSize>0) {
+			outFileName+="cache_"+routeCacheSize+"/";
+		}
+		if(adaptiveOrdering) {
+			outFileName+="adaptive/";
+		}
+		if(concurrentRuns>1) {
+			outFileName+="concurrent_"+concurrentRuns+"/";
+		}
+		outFileName+=instanceName+".txt";
+		return outFileName;
+	}
+
+	@Override
+	public String toString() {
+		return algorithm+" type="+type+" shuffle="+shuffleNeighborhoods+" population="+populationSize
+				+" threads="+threadCount+" repetition="+repetition+" instance="+instanceName
+				+(concurrentRuns>1 ? " concurrent="+concurrentRuns : "")
+				+(candidateListSize>0 ? " k="+candidateListSize+" widen="+widenCandidateLists : "")
+				+" start="+construction
+				+(timeLimitMillis>0 ? " limit="+timeLimitMillis+"ms" : "")
+				+(iterationLimit>0 ? " iterations="+iterationLimit : "")
+				+(deduplicateNeighbors ? " dedup" : "")
+				+(visitedSetSize>0 ? " visited="+visitedSetSize : "")
+				+(workStealing ? " steal" : "")
+				+(pairMemorySize>0 ? " memory="+pairMemorySize : "")
+				+(routeCacheSize>0 ? " cache="+routeCacheSize : "")
+				+(adaptiveOrdering ? " adaptive" : "")
+				+(seed!=0 ? " seed="+seed : "");
+	}
+
+	//================================================================================================
+
+	/**
+	 * Mutable copy of all options, so a with method only sets the options it changes.
+	 */
+	private static final class Options{
+		private final Algorithm algorithm;
+		private final Type type;
+		private final boolean shuffleNeighborhoods;
+		private final int populationSize;
+		private final int threadCount;
+		private final int repetition;
+		private final String instanceName;
+		private int concurrentRuns = 1;
+		private int candidateListSize = 0;
+		private boolean widenCandidateLists = false;
+		private Construction construction = Construction.SINGLETON;
+		private long timeLimitMillis = 0;
+		private long iterationLimit = 0;
+		private boolean deduplicateNeighbors = false;
+		private int visitedSetSize = 0;
+		private boolean workStealing = false;
+		private int pairMemorySize = 0;
+		private int routeCacheSize = 0;
+		private boolean adaptiveOrdering = false;
+		private long seed = 0;
+
+		public Options(Algorithm algorithm, Type type, boolean shuffleNeighborhoods, int populationSize,
+				int threadCount, int repetition, String instanceName) {
+			this.algorithm = algorithm;
+			this.type = type;
+			this.shuffleNeighborhoods = shuffleNeighborhoods;
+			this.populationSize = populationSize;
+			this.threadCount = threadCount;
+			this.repetition = repetition;
+			this.instanceName = instanceName;
+		}
+
+		public Options(RunConfiguration run) {
+			this(run.algorithm, run.type, run.shuffleNeighborhoods, run.populationSize, run.threadCount, 
+					run.repetition, run.instanceName);
+			this.concurrentRuns = run.concurrentRuns;
+			this.candidateListSize = run.candidateListSize;
+			this.widenCandidateLists = run.widenCandidateLists;
+			this.construction = run.construction;
+			this.timeLimitMillis = run.timeLimitMillis;
+			this.iterationLimit = run.iterationLimit;
+			this.deduplicateNeighbors = run.deduplicateNeighbors;
+			this.visitedSetSize = run.visitedSetSize;
+			this.workStealing = run.workStealing;
+			this.pairMemorySize = run.pairMemorySize;
+			this.routeCacheSize = run.routeCacheSize;
+			this.adaptiveOrdering = run.adaptiveOrdering;
+			this.seed = run.seed;
+		}
+	}
+}
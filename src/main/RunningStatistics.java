@@ -0,0 +1,93 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Streaming statistics of a series of primitive values. </br>
+ * Mean and standard deviation are updated with Welford's method as values are added,
+ * the values themselves are kept in a primitive array for the outlier trimmed mean and comparisons.
+ */
+public final class RunningStatistics {
+
+	private double[] values = new double[8];
+	private int count = 0;
+	private double mean = 0;
+	private double squaredDeviations = 0;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	public void add(double value) {
+		if(count==values.length) {
+			values = Arrays.copyOf(values, count*2);
+		}
+		values[count++] = value;
+
+		double difference = value-mean;
+		mean += difference/count;
+		squaredDeviations += difference*(value-mean);
+
+		if(value<min)
+			min = value;
+		if(value>max)
+			max = value;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public double getMean() {
+		return count==0 ? Double.NaN : mean;
+	}
+
+	/**
+	 * Population standard deviation (divided by the number of values).
+	 */
+	public double getStandardDeviation() {
+		return count==0 ? Double.NaN : Math.sqrt(squaredDeviations/count);
+	}
+
+	public double getMin() {
+		return count==0 ? Double.NaN : min;
+	}
+
+	public double getMax() {
+		return count==0 ? Double.NaN : max;
+	}
+
+	/**
+	 * Mean of the values which are at most deviationCount standard deviations away from the mean.
+	 */
+	public double getTrimmedMean(int deviationCount) {
+		if(count==0)
+			return Double.NaN;
+
+		double limit = deviationCount*getStandardDeviation();
+		double sum = 0;
+		int n = 0;
+		for(int i=0; i<count; i++) {
+			if(Math.abs(mean-values[i])<=limit) {
+				sum += values[i];
+				n++;
+			}
+		}
+		return sum/n;
+	}
+
+	/**
+	 * Returns the number of values smaller than, equal to and larger than the given reference.
+	 */
+	public int[] compareTo(double reference, double tolerance) {
+		int[] counts = new int[3];
+		for(int i=0; i<count; i++) {
+			double difference = values[i]-reference;
+			if(difference<-tolerance)
+				counts[0]++;
+			else if(difference>tolerance)
+				counts[2]++;
+			else
+				counts[1]++;
+		}
+		return counts;
+	}
+}
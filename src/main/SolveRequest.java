@@ -0,0 +1,160 @@
+package main;
+
+import java.util.StringTokenizer;
+
+import common.construction.Construction;
+
+/**
+ * A single solve request of the {@link SolverService}. </br>
+ * Requests are one line of space separated key=value pairs, e.g.
+ * <pre>SOLVE instance=data/P-n16-k8.vrp algorithm=POP_VND type=BEST population=3 limit=1000</pre>
+ * instance=- means the CVRPLIB text follows on the next lines up to the EOF line.
+ * Keys which are not given keep the defaults of Main.
+ */
+public final class SolveRequest {
+
+	/** Instance path or {@link #INLINE} */
+	public final String instance;
+	public final Algorithm algorithm;
+	public final Type type;
+	public final boolean shuffleNeighborhoods;
+	public final boolean adaptiveOrdering;
+	public final int populationSize;
+	public final int threadCount;
+	public final Construction construction;
+	public final long timeLimitMillis; //0 for no limit
+	public final long iterationLimit; //0 for no limit
+	public final boolean progress; //stream every improvement of the incumbent
+	public final long seed; //0 draws a new seed
+
+	public static final String INLINE = "-";
+
+	private SolveRequest(String instance, Algorithm algorithm, Type type, boolean shuffleNeighborhoods, 
+			boolean adaptiveOrdering, int populationSize, int threadCount, Construction construction, 
+			long timeLimitMillis, long iterationLimit, boolean progress, long seed) {
+		this.instance = instance;
+		this.algorithm = algorithm;
+		this.type = type;
+		this.shuffleNeighborhoods = shuffleNeighborhoods;
+		this.adaptiveOrdering = adaptiveOrdering;
+		this.populationSize = populationSize;
+		this.threadCount = threadCount;
+		this.construction = construction;
+		this.timeLimitMillis = timeLimitMillis;
+		this.iterationLimit = iterationLimit;
+		this.progress = progress;
+		this.seed = seed;
+	}
+
+	/**
+	 * Parses the arguments of a SOLVE line (without the command itself). </br>
+	 * Throws IllegalArgumentException for unknown keys or invalid values.
+	 */
+	public static SolveRequest parse(String arguments) {
+		String instance = null;
+		Algorithm algorithm = Algorithm.POP_VND;
+		Type type = Type.BEST;
+		boolean shuffle = false;
+		boolean adaptive = false;
+		int population = 3;
+		int threads = 1;
+		Construction construction = Construction.SINGLETON;
+		long limit = 0;
+		long iterations = 0;
+		boolean progress = false;
+		long seed = 0;
+
+		StringTokenizer tokenizer = new StringTokenizer(arguments);
+		while(tokenizer.hasMoreTokens()) {
+			String token = tokenizer.nextToken();
+			int separator = token.indexOf('=');
+			if(separator<=0)
+				throw new IllegalArgumentException("Expected key=value but got "+token);
+			String key = token.substring(0, separator);
+			String value = token.substring(separator+1);
+			switch (key) {
+				case "instance":
+					instance = value;
+					break;
+				case "algorithm":
+					algorithm = Algorithm.valueOf(value.toUpperCase());
+					break;
+				case "type":
+					type = Type.valueOf(value.toUpperCase());
+					break;
+				case "shuffle":
+					shuffle = Boolean.parseBoolean(value);
+					break;
+				case "adaptive":
+					adaptive = Boolean.parseBoolean(value);
+					break;
+				case "population":
+					population = Integer.parseInt(value);
+					break;
+				case "threads":
+					threads = Integer.parseInt(value);
+					break;
+				case "start":
+					construction = Construction.valueOf(value.toUpperCase());
+					break;
+				case "limit":
+					limit = Long.parseLong(value);
+					break;
+				case "iterations":
+					iterations = Long.parseLong(value);
+					break;
+				case "progress":
+					progress = Boolean.parseBoolean(value);
+					break;
+				case "seed":
+					seed = Long.parseLong(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown key "+key);
+			}
+		}
+
+		if(instance==null || instance.isEmpty())
+			throw new IllegalArgumentException("Missing instance");
+		if(population<1 || threads<1 || limit<0 || iterations<0)
+			throw new IllegalArgumentException("population and threads must be positive, limits must not be negative");
+		return new SolveRequest(instance, algorithm, type, shuffle, adaptive, population, threads, construction, 
+				limit, iterations, progress, seed);
+	}
+
+	public boolean isInline() {
+		return INLINE.equals(instance);
+	}
+
+	/**
+	 * Does the SOLVE line send its instance inline, also if its other arguments are invalid.
+	 */
+	public static boolean isInline(String arguments) {
+		StringTokenizer tokenizer = new StringTokenizer(arguments);
+		while(tokenizer.hasMoreTokens()) {
+			if(tokenizer.nextToken().equals("instance="+INLINE))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the run configuration of this request, named after the given instance name.
+	 */
+	public RunConfiguration toRunConfiguration(String instanceName) {
+		int population = algorithm.hasPopulation() ? populationSize : 0;
+		return new RunConfiguration(algorithm, type, shuffleNeighborhoods, population, threadCount, 0, instanceName)
+				.withConstruction(construction)
+				.withBudget(timeLimitMillis, iterationLimit)
+				.withAdaptiveOrdering(adaptiveOrdering)
+				.withSeed(seed);
+	}
+
+	@Override
+	public String toString() {
+		return "instance="+instance+" algorithm="+algorithm+" type="+type+" shuffle="+shuffleNeighborhoods
+				+" adaptive="+adaptiveOrdering
+				+" population="+populationSize+" threads="+threadCount+" start="+construction
+				+" limit="+timeLimitMillis+" iterations="+iterationLimit+" seed="+seed;
+	}
+}
@@ -0,0 +1,410 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import common.InstanceCache;
+import common.InstanceReader;
+import common.RouteOptimizer;
+import common.StartSolution;
+import common.anytime.Budget;
+import common.anytime.Incumbent;
+import common.random.RandomStreams;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+import sa.PVND_SA_Main;
+import utilities.executor.ExecutorServiceProvider;
+import utility.DirectExecutorService;
+import utility.Utilities;
+
+/**
+ * Long running solver which keeps the JVM, the instance cache and the route cache warm between solves. </br>
+ * Clients connect to the loopback port and send line based commands (e.g. with nc localhost 4444):
+ * <pre>
+ * SOLVE key=value ...   queue a solve, see {@link SolveRequest}
+ * CANCEL id             stop a queued or running solve of this connection, it reports its best solution so far
+ * STATUS                queued, running, completed and rejected solves
+ * QUIT                  close the connection, its solves are cancelled
+ * SHUTDOWN              stop the service
+ * </pre>
+ * Replies are QUEUED id, REJECTED [id] reason, IMPROVED id length ms (with progress=true),
+ * RESULT id seed followed by the solution as Utilities.presentSolution prints it and END id, or ERROR id message. </br>
+ * At most SOLVER_COUNT solves run at the same time and at most QUEUE_CAPACITY wait for a solver,
+ * further requests are rejected instead of piling up. A connection can have at most CONNECTION_REQUEST_LIMIT
+ * solves queued or running and a single solve can use at most REQUEST_THREAD_LIMIT threads.
+ */
+public class SolverService {
+
+	private static final int PORT = 4444;
+	private static final int SOLVER_COUNT = Runtime.getRuntime().availableProcessors(); //concurrently running solves
+	private static final int QUEUE_CAPACITY = 64; //solves waiting for a solver
+	private static final int CONNECTION_REQUEST_LIMIT = 16; //queued and running solves per connection
+	private static final int REQUEST_THREAD_LIMIT = 4; //POP-VND population threads of a single solve
+	private static final long REQUEST_TIME_LIMIT_MILLIS = 600_000; //longest accepted time limit, 0 accepts solves without limit
+	private static final int ROUTE_CACHE_SIZE = 200_000; //routes solved by a run are reused within the run, 0 disables the route cache
+	private static final double ROUTE_REPAIR_FALLBACK = 0; //changed routes are repaired and solved again if longer than this ratio of the route before the move, 0 always solves them
+	private static final String BINARY_INSTANCE_DIRECTORY = "output/instances/"; //binary instances with the stored distances, null only parses the .vrp files
+	private static final String WARMUP_INSTANCE = "data/P-n16-k8.vrp"; //solved once before accepting requests, null skips it
+	private static final long WARMUP_MILLIS = 2_000;
+
+	private final ThreadPoolExecutor solvers;
+	private final AtomicLong nextId = new AtomicLong(1);
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private volatile boolean running = true;
+	private ServerSocket serverSocket;
+
+	public SolverService(int solverCount, int queueCapacity) {
+		this.solvers = new ThreadPoolExecutor(solverCount, solverCount, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity));
+	}
+
+	public static void main(String[] args) throws IOException {
+		RouteOptimizer.setRepair(ROUTE_REPAIR_FALLBACK);
+		if(BINARY_INSTANCE_DIRECTORY!=null) {
+			InstanceCache.setBinaryDirectory(Paths.get(BINARY_INSTANCE_DIRECTORY));
+		}
+
+		SolverService service = new SolverService(SOLVER_COUNT, QUEUE_CAPACITY);
+		if(WARMUP_INSTANCE!=null && Files.exists(Paths.get(WARMUP_INSTANCE))) {
+			service.warmUp(WARMUP_INSTANCE, WARMUP_MILLIS);
+		}
+		service.serve(PORT);
+	}
+
+	/**
+	 * Solves the instance with every algorithm so the solver code is compiled before the first request.
+	 */
+	public void warmUp(String instance, long timeLimitMillis) throws IOException {
+		long start = System.nanoTime();
+		for(Algorithm algorithm:Algorithm.values()) {
+			SolveRequest request = SolveRequest.parse("instance="+instance+" algorithm="+algorithm+" limit="+timeLimitMillis);
+			CVRPDescription description = InstanceCache.getDescription(instance);
+			solve(description, request.toRunConfiguration("warmup").withRouteCache(ROUTE_CACHE_SIZE), new Budget(timeLimitMillis, 0), new Incumbent());
+		}
+		System.out.println("Warm up done in "+(System.nanoTime()-start)/1_000_000+" ms");
+	}
+
+	/**
+	 * Accepts connections on the loopback port until SHUTDOWN is received.
+	 */
+	public void serve(int port) throws IOException {
+		try(ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())){
+			serverSocket = server;
+			System.out.println("Solver service listening on "+server.getLocalSocketAddress()
+					+" with "+solvers.getMaximumPoolSize()+" solvers");
+			while(running) {
+				Socket socket;
+				try {
+					socket = server.accept();
+				} catch (SocketException e) {
+					if(!running)
+						break;
+					throw e;
+				}
+				Thread thread = new Thread(new Connection(socket), "solver-connection-"+socket.getPort());
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+		finally {
+			solvers.shutdownNow();
+		}
+	}
+
+	public void shutdown() {
+		running = false;
+		try {
+			if(serverSocket!=null)
+				serverSocket.close();
+		} catch (IOException e) {
+			//Closing only stops accept
+		}
+	}
+
+	private String status() {
+		return "STATUS queued="+solvers.getQueue().size()+" running="+solvers.getActiveCount()
+				+" completed="+completed.get()+" rejected="+rejected.get();
+	}
+
+	private static DemandRoutesSolution solve(CVRPDescription description, RunConfiguration run, Budget budget, Incumbent incumbent) {
+		ExecutorService executorService = run.threadCount>1 ?
+				ExecutorServiceProvider.getNewExecutorService(run.threadCount) : new DirectExecutorService();
+		try {
+			DemandRoutesSolution routes = StartSolution.getInitialSolution(description, run.construction);
+			incumbent.offer(routes);
+			switch (run.algorithm) {
+				case POP_VND:
+					routes = Solvers.optimizeISVND(routes,description,run,executorService,null,budget,incumbent,null);
+					break;
+
+				case SA_POP_VND:
+					routes = Solvers.optimizeHybrid(routes,description,run,executorService,null,budget,incumbent,null);
+					break;
+
+				case VND:
+					routes = Solvers.optimizeVND(routes,description,run,null,budget,incumbent,null);
+					break;
+
+				case SA:
+					routes = PVND_SA_Main.solve(routes,description,budget,incumbent,run.seed,null);
+					break;
+
+				default:
+					throw new IllegalArgumentException("Unsupported algorithm "+run.algorithm);
+			}
+			return routes;
+		}
+		finally {
+			executorService.shutdown();
+		}
+	}
+
+	//================================================================================================
+
+	/**
+	 * Reads the commands of one client and writes the replies of its solves.
+	 */
+	private final class Connection implements Runnable{
+
+		private final Socket socket;
+		private final PrintStream output;
+		private final Semaphore permits = new Semaphore(CONNECTION_REQUEST_LIMIT);
+		private final Map<Long, Solve> solves = new ConcurrentHashMap<>();
+
+		public Connection(Socket socket) throws IOException {
+			this.socket = socket;
+			this.output = new PrintStream(socket.getOutputStream(), false, "UTF-8");
+		}
+
+		@Override
+		public void run() {
+			try(BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"))){
+				String line;
+				while((line = reader.readLine())!=null) {
+					line = line.trim();
+					if(line.isEmpty())
+						continue;
+					int separator = line.indexOf(' ');
+					String command = (separator<0 ? line : line.substring(0, separator)).toUpperCase();
+					String arguments = separator<0 ? "" : line.substring(separator+1);
+					switch (command) {
+						case "SOLVE":
+							submit(arguments, reader);
+							break;
+						case "CANCEL":
+							cancel(arguments.trim());
+							break;
+						case "STATUS":
+							send(status());
+							break;
+						case "QUIT":
+							return;
+						case "SHUTDOWN":
+							send("BYE");
+							shutdown();
+							return;
+						default:
+							send("REJECTED unknown command "+command);
+							break;
+					}
+				}
+			} catch (IOException e) {
+				//Client went away, its solves are cancelled below
+			}
+			finally {
+				for(Solve solve:solves.values())
+					solve.cancel();
+				try {
+					socket.close();
+				} catch (IOException e) {
+					//Already closed
+				}
+			}
+		}
+
+		private void submit(String arguments, BufferedReader reader) throws IOException {
+			SolveRequest request;
+			CVRPDescription description;
+			String instanceName;
+			try {
+				request = SolveRequest.parse(arguments);
+			} catch (IllegalArgumentException e) {
+				//the instance text follows the line anyway and must not be read as commands
+				if(SolveRequest.isInline(arguments))
+					readInstance(reader);
+				reject(e.getMessage());
+				return;
+			}
+			try {
+				if(request.isInline()) {
+					instanceName = "inline";
+					description = InstanceReader.read(new BufferedReader(new StringReader(readInstance(reader))), "inline instance");
+				}
+				else {
+					instanceName = Paths.get(request.instance).getFileName().toString().replace(".vrp", "");
+					description = InstanceCache.getDescription(request.instance);
+				}
+			} catch (IOException e) {
+				reject("cannot read instance "+e.getMessage());
+				return;
+			}
+
+			if(request.threadCount>REQUEST_THREAD_LIMIT) {
+				reject("threads above "+REQUEST_THREAD_LIMIT);
+				return;
+			}
+			if(REQUEST_TIME_LIMIT_MILLIS>0 && (request.timeLimitMillis==0 || request.timeLimitMillis>REQUEST_TIME_LIMIT_MILLIS)) {
+				reject("limit must be between 1 and "+REQUEST_TIME_LIMIT_MILLIS+" ms");
+				return;
+			}
+			if(!permits.tryAcquire()) {
+				reject("connection has "+CONNECTION_REQUEST_LIMIT+" solves pending");
+				return;
+			}
+
+			long id = nextId.getAndIncrement();
+			RunConfiguration run = request.toRunConfiguration(instanceName).withRouteCache(ROUTE_CACHE_SIZE);
+			if(run.seed==0)
+				run = run.withSeed(RandomStreams.newSeed());
+			Solve solve = new Solve(id, request, run, description);
+			solves.put(id, solve);
+			//Holding the output keeps the replies of a fast solve behind QUEUED
+			synchronized (output) {
+				try {
+					solvers.execute(solve);
+				} catch (RejectedExecutionException e) {
+					solves.remove(id);
+					permits.release();
+					reject(id+" queue full");
+					return;
+				}
+				send("QUEUED "+id);
+			}
+		}
+
+		/**
+		 * Reads the inline CVRPLIB text up to its EOF line.
+		 */
+		private String readInstance(BufferedReader reader) throws IOException {
+			StringBuilder text = new StringBuilder();
+			String line;
+			while((line = reader.readLine())!=null) {
+				text.append(line).append('\n');
+				if(line.trim().startsWith("EOF"))
+					return text.toString();
+			}
+			throw new IOException("Inline instance without EOF line");
+		}
+
+		private void reject(String reason) {
+			rejected.incrementAndGet();
+			send("REJECTED "+reason);
+		}
+
+		private void cancel(String argument) {
+			Solve solve;
+			try {
+				solve = solves.get(Long.parseLong(argument));
+			} catch (NumberFormatException e) {
+				solve = null;
+			}
+			if(solve==null) {
+				send("REJECTED no solve "+argument);
+				return;
+			}
+			solve.cancel();
+		}
+
+		private void send(String message) {
+			synchronized (output) {
+				output.println(message);
+				output.flush();
+			}
+		}
+
+		/**
+		 * A queued or running solve. </br>
+		 * The budget is only created when a solver takes the solve so time spent in the queue is not counted.
+		 */
+		private final class Solve implements Runnable{
+
+			private final long id;
+			private final SolveRequest request;
+			private final RunConfiguration run;
+			private final CVRPDescription description;
+			private volatile Budget budget;
+			private volatile boolean cancelled = false;
+
+			public Solve(long id, SolveRequest request, RunConfiguration run, CVRPDescription description) {
+				this.id = id;
+				this.request = request;
+				this.run = run;
+				this.description = description;
+			}
+
+			@Override
+			public void run() {
+				long startTime = System.nanoTime();
+				try {
+					budget = run.newBudget();
+					if(cancelled)
+						budget.cancel();
+
+					Incumbent incumbent = new Incumbent();
+					if(request.progress) {
+						incumbent.addListener(s -> send("IMPROVED "+id+" "+s.length+" "+(System.nanoTime()-startTime)/1_000_000));
+					}
+					DemandRoutesSolution routes = solve(description, run, budget, incumbent);
+					double time = (System.nanoTime()-startTime)*1e-6;
+
+					ByteArrayOutputStream presentation = new ByteArrayOutputStream();
+					try(PrintStream presentationStream = new PrintStream(presentation, false, "UTF-8")){
+						presentationStream.println("RESULT "+id+" "+run.seed);
+						Utilities.presentSolution(presentationStream, routes, time, routes.length);
+						presentationStream.print("END "+id);
+					}
+					send(presentation.toString("UTF-8"));
+					completed.incrementAndGet();
+				} catch (Exception e) {
+					send("ERROR "+id+" "+e);
+				}
+				finally {
+					solves.remove(id);
+					permits.release();
+				}
+			}
+
+			/**
+			 * A running solve stops at its next budget check and reports its best solution,
+			 * a queued one starts with an exhausted budget.
+			 */
+			public void cancel() {
+				cancelled = true;
+				Budget current = budget;
+				if(current!=null)
+					current.cancel();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,463 @@
+package main;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import common.RouteCache;
+import common.anytime.Budget;
+import common.anytime.Incumbent;
+import common.fingerprint.Fingerprint;
+import common.fingerprint.FingerprintSet;
+import common.metrics.SearchMetrics;
+import common.neighborhood.AbstractDeltaNeighborhood;
+import common.neighborhood.AbstractDeltaNeighborhood_V2;
+import common.neighborhood.CandidateLists;
+import common.neighborhood.DeltaChangeStationRoute;
+import common.neighborhood.DeltaChangeStationRoute_V2;
+import common.neighborhood.DeltaMergeRoutes;
+import common.neighborhood.DeltaMergeRoutes_V2;
+import common.neighborhood.DeltaSwapStations;
+import common.neighborhood.DeltaSwapStations_V2;
+import common.neighborhood.PairMemory;
+import common.order.AdaptiveOrder;
+import common.order.OrderedNeighborhoods;
+import common.order.ShuffledOrder;
+import common.popvnd.IStartPopulationGenerator;
+import common.popvnd.NeighborQuota;
+import common.popvnd.SeededRandomMMaintenance;
+import common.popvnd.SeededRandomMSelection;
+import common.popvnd.WorkStealingPopulationDescent;
+import common.random.RandomStreams;
+import function.ID1Function;
+import heuristic.VariableNeighborhoodDescent;
+import heuristic.popvnd.ImmuneSystemVariableNeighborhoodDescent_V2;
+import heuristic.popvnd.finalSolutionSelection.BestSolutionSelection;
+import heuristic.popvnd.neighborAcceptanceTest.BetterThanBestInPopulation;
+import heuristic.popvnd.neighborAcceptanceTest.NeighborAcceptanceTest;
+import heuristic.popvnd.neighborhood.INeighborhood_V2;
+import heuristic.popvnd.neighborhoodMaintenance.BestMMaintenance;
+import heuristic.popvnd.neighborhoodMaintenance.FirstMMaintenance;
+import heuristic.popvnd.neighborhoodMaintenance.NeighborhoodMaintenance;
+import heuristic.popvnd.populationSelection.BestMSelection;
+import heuristic.popvnd.populationSelection.FirstMSelection;
+import heuristic.popvnd.populationSelection.IPopulationSelection_V2;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+import optimization.algorithm.IOptimizationAlgorithm;
+import optimization.decoder.IDecoder;
+import optimization.decoder.PassThroughDecoder;
+import optimization.fittnesEvaluator.FunctionValueFitnessEvaluator;
+import optimization.fittnesEvaluator.IFitnessEvaluator;
+import optimization.fittnesEvaluator.NegateFitnessEvaluator;
+import optimization.solution.neighborhood.INeighborhood;
+import optimization.solution.neighborhood.selection.INeighborSelection;
+import optimization.solution.neighborhood.selection.SelectBestImprovingNeighbor;
+import optimization.solution.neighborhood.selection.SelectFirstImprovingNeighbor;
+import optimization.solution.neighborhood.selection.SelectRandomImprovingNeighbor;
+import sa.AnnealingPhase;
+
+/**
+ * Builds and runs the VND, POP-VND and SA+POP-VND solvers described by a {@link RunConfiguration}.
+ */
+public class Solvers {
+	
+	public static final Comparator<DemandRoutesSolution> COMPARATOR = (r1,r2)-> Double.compare(r1.length, r2.length);
+	/** Number of nearest customers stored per customer, relative to k */
+	public static final int CANDIDATE_LIST_FACTOR = 4;
+	/** Part of the run time limit the SA+POP-VND annealing phase may take */
+	public static final double HYBRID_ANNEALING_SHARE = 0.2;
+
+	public static DemandRoutesSolution optimizeVND(DemandRoutesSolution routes, CVRPDescription description, 
+			RunConfiguration run, ForkJoinPool neighborhoodPool) {
+		return optimizeVND(routes, description, run, neighborhoodPool, run.newBudget(), new Incumbent(), null);
+	}
+
+	/**
+	 * Runs VND until no neighborhood improves the solution or the budget is exhausted. </br>
+	 * Every improvement is published to the incumbent and search counts are added to the metrics (null to not collect them). </br>
+	 * The search draws from the run stream of the run seed, bound to the calling thread.
+	 */
+	public static DemandRoutesSolution optimizeVND(DemandRoutesSolution routes, CVRPDescription description, 
+			RunConfiguration run, ForkJoinPool neighborhoodPool, Budget budget, Incumbent incumbent, SearchMetrics metrics) {
+		RandomStreams.install();
+		RandomStreams streams = newRandomStreams(run);
+		Random previous = RandomStreams.bind(streams.getRunStream());
+		try {
+			return optimizeVND(routes, description, run, neighborhoodPool, budget, incumbent, metrics, streams);
+		}
+		finally {
+			RandomStreams.bind(previous);
+		}
+	}
+
+	private static DemandRoutesSolution optimizeVND(DemandRoutesSolution routes, CVRPDescription description, 
+			RunConfiguration run, ForkJoinPool neighborhoodPool, Budget budget, Incumbent incumbent, SearchMetrics metrics,
+			RandomStreams streams) {
+		DemandRoutesSolution startSolution = routes;
+		incumbent.offer(startSolution);
+		
+		// Decoded
+		IDecoder<DemandRoutesSolution, DemandRoutesSolution> decoder = new PassThroughDecoder<>();
+		
+		// Evaluator
+		IFitnessEvaluator<DemandRoutesSolution> evaluator = new NegateFitnessEvaluator<>(new FunctionValueFitnessEvaluator<>());
+		
+		//Function
+		ID1Function<DemandRoutesSolution> function = (s)->s.length;
+
+		//Neighborhood Selection
+		INeighborSelection<DemandRoutesSolution> neighborhoodSelection = null;
+		switch (run.type) {
+			case BEST:
+				neighborhoodSelection = new SelectBestImprovingNeighbor<>();
+				break;
+			case FIRST:
+				neighborhoodSelection = new SelectFirstImprovingNeighbor<>();
+				break;
+			case RANDOM:
+				neighborhoodSelection = new SelectRandomImprovingNeighbor<>();
+				break;
+			default:
+				break;
+		}
+		INeighborSelection<DemandRoutesSolution> selection = neighborhoodSelection;
+		INeighborSelection<DemandRoutesSolution> budgetedSelection = (solution, solutionQuality, neighbors, qualities) -> {
+			if(budget.isExhausted())
+				return -1;
+			budget.iterate();
+			int selected = selection.select(solution, solutionQuality, neighbors, qualities);
+			if(selected!=-1)
+				incumbent.offer(neighbors.get(selected));
+			if(metrics!=null)
+				metrics.addIteration(selected!=-1, selected!=-1 ? 1 : 0);
+			return selected;
+		};
+				
+		//Neighborhoods
+		List<INeighborhood<DemandRoutesSolution>> neghborhoods = orderNeighborhoods(getNeighborhoods(description, 
+				getCandidateLists(description, run), neighborhoodPool, budget, metrics, run.pairMemorySize, 
+				newRouteCache(description, run)), run, streams);
+		
+		//Optimization algorithm
+		VariableNeighborhoodDescent<DemandRoutesSolution, DemandRoutesSolution> optimization = new VariableNeighborhoodDescent<>(
+				startSolution, decoder, neghborhoods, false, evaluator, budgetedSelection, function);
+
+		DemandRoutesSolution solution = optimization.run();
+		
+		//remove empty routes
+		solution.removeEmptyRoutes();
+		
+		return solution;
+	}
+
+	/**
+	 * Returns the neighborhoods in the order of the run: a view ordered by {@link AdaptiveOrder} or {@link ShuffledOrder}
+	 * owned by this run, otherwise the neighborhoods themselves. The descent must not shuffle the returned list.
+	 */
+	public static <N> List<N> orderNeighborhoods(List<N> neighborhoods, RunConfiguration run, RandomStreams streams) {
+		if(run.adaptiveOrdering)
+			return new OrderedNeighborhoods<>(neighborhoods, new AdaptiveOrder(neighborhoods.size()));
+		if(run.shuffleNeighborhoods)
+			return new OrderedNeighborhoods<>(neighborhoods, new ShuffledOrder(streams.newOrderStream()));
+		return neighborhoods;
+	}
+
+	/**
+	 * Returns a new cache for the solved routes of the run, null if the run has no route cache.
+	 */
+	public static RouteCache newRouteCache(CVRPDescription description, RunConfiguration run) {
+		return run.routeCacheSize>0 ? new RouteCache(description, run.routeCacheSize) : null;
+	}
+
+	/**
+	 * Returns the random streams of a solve of the run, split from the run seed or from a new seed if it has none.
+	 */
+	public static RandomStreams newRandomStreams(RunConfiguration run) {
+		return new RandomStreams(run.seed!=0 ? run.seed : RandomStreams.newSeed(), Math.max(1, run.populationSize));
+	}
+
+	/**
+	 * Returns the candidate lists described by the run or null when the full neighborhood should be used.
+	 */
+	public static CandidateLists getCandidateLists(CVRPDescription description, RunConfiguration run) {
+		if(run.candidateListSize<=0)
+			return null;
+		return new CandidateLists(description, run.candidateListSize, 
+				CANDIDATE_LIST_FACTOR*run.candidateListSize, run.widenCandidateLists);
+	}
+
+	public static List<INeighborhood<DemandRoutesSolution>> getNeighborhoods(CVRPDescription description, ForkJoinPool neighborhoodPool) {
+		return getNeighborhoods(description, null, neighborhoodPool, null, null, 0, null);
+	}
+
+	/**
+	 * @param pairMemorySize - route pairs remembered per neighborhood (0 disables the pair memory)
+	 * @param cache - solved routes shared by the neighborhoods (null to solve every changed route)
+	 */
+	public static List<INeighborhood<DemandRoutesSolution>> getNeighborhoods(CVRPDescription description, 
+			CandidateLists candidateLists, ForkJoinPool neighborhoodPool, Budget budget, SearchMetrics metrics,
+			int pairMemorySize, RouteCache cache) {
+		Function<DemandRoutesSolution, Predicate<DemandRoutesSolution>> acceptanceTest = s -> n -> n.length<s.length;
+		
+		AbstractDeltaNeighborhood neighborhood1 = new DeltaMergeRoutes(description,acceptanceTest,neighborhoodPool,null,budget,metrics);
+		
+		AbstractDeltaNeighborhood neighborhood2 = new DeltaChangeStationRoute(description,acceptanceTest,neighborhoodPool,candidateLists,budget,metrics);
+
+		AbstractDeltaNeighborhood neighborhood3 = new DeltaSwapStations(description,acceptanceTest,neighborhoodPool,candidateLists,budget,metrics);
+
+		for(AbstractDeltaNeighborhood neighborhood:Arrays.asList(neighborhood1,neighborhood2,neighborhood3)) {
+			if(pairMemorySize>0) {
+				neighborhood.setPairMemory(new PairMemory(pairMemorySize));
+			}
+			neighborhood.setRouteCache(cache);
+		}
+
+		return Arrays.asList(
+				neighborhood1, neighborhood2,neighborhood3 
+		);
+	}
+	
+	//==============================================================================================================================
+
+	public static DemandRoutesSolution optimizeISVND(DemandRoutesSolution routes, CVRPDescription description, 
+			RunConfiguration run, ExecutorService executorService, ForkJoinPool neighborhoodPool) {
+		return optimizeISVND(routes, description, run, executorService, neighborhoodPool, run.newBudget(), new Incumbent(), null);
+	}
+
+	/**
+	 * Runs POP-VND until no neighborhood improves the population or the budget is exhausted. </br>
+	 * Every improving population member is published to the incumbent 
+	 * and search counts are added to the metrics (null to not collect them). </br>
+	 * With work stealing the members are scheduled by {@link WorkStealingPopulationDescent}
+	 * on the executor if it is a ForkJoinPool, otherwise on the calling thread. </br>
+	 * The search loop draws from the run stream of the run seed and every member from its own member stream.
+	 */
+	public static DemandRoutesSolution optimizeISVND(DemandRoutesSolution routes, CVRPDescription description, 
+			RunConfiguration run, ExecutorService executorService, ForkJoinPool neighborhoodPool, 
+			Budget budget, Incumbent incumbent, SearchMetrics metrics) {
+		RandomStreams.install();
+		RandomStreams streams = newRandomStreams(run);
+		Random previous = RandomStreams.bind(streams.getRunStream());
+		try {
+			return optimizeISVND(Collections.singletonList(routes), description, run, executorService, neighborhoodPool, 
+					budget, incumbent, metrics, streams);
+		}
+		finally {
+			RandomStreams.bind(previous);
+		}
+	}
+
+	/**
+	 * Runs simulated annealing chains from the start solution and then POP-VND from their best solutions. </br>
+	 * The annealing phase ({@link AnnealingPhase}, one chain per population member on the executor) may take 
+	 * {@link #HYBRID_ANNEALING_SHARE} of the run time limit and otherwise ends once every chain stagnates.
+	 * POP-VND then starts from the distinct chain bests, always scheduled by {@link WorkStealingPopulationDescent}
+	 * (on a fork join pool of the run threads unless the executor is one), and gets the rest of the budget. </br>
+	 * Every improvement is published to the incumbent, search counts of the POP-VND phase are added to the metrics
+	 * (null to not collect them). Every chain draws from its own chain stream of the run seed.
+	 */
+	public static DemandRoutesSolution optimizeHybrid(DemandRoutesSolution routes, CVRPDescription description, 
+			RunConfiguration run, ExecutorService executorService, ForkJoinPool neighborhoodPool, 
+			Budget budget, Incumbent incumbent, SearchMetrics metrics) {
+		RandomStreams.install();
+		RandomStreams streams = newRandomStreams(run);
+		Random previous = RandomStreams.bind(streams.getRunStream());
+		//the population descent only runs members in parallel on a fork join pool
+		ForkJoinPool memberPool = executorService instanceof ForkJoinPool || run.threadCount<=1 ? 
+				null : new ForkJoinPool(run.threadCount);
+		try {
+			long phaseMillis = (long) (run.timeLimitMillis*HYBRID_ANNEALING_SHARE);
+			List<DemandRoutesSolution> elites = new AnnealingPhase(description, Math.max(1, run.populationSize), executorService)
+					.run(routes, phaseMillis, budget, incumbent, metrics, streams);
+			return optimizeISVND(elites, description, run, memberPool!=null ? memberPool : executorService, neighborhoodPool, 
+					budget, incumbent, metrics, streams);
+		}
+		finally {
+			RandomStreams.bind(previous);
+			if(memberPool!=null)
+				memberPool.shutdown();
+		}
+	}
+
+	/**
+	 * @param startPopulation - start solutions, more than one always uses {@link WorkStealingPopulationDescent}
+	 */
+	private static DemandRoutesSolution optimizeISVND(List<DemandRoutesSolution> startPopulation, CVRPDescription description, 
+			RunConfiguration run, ExecutorService executorService, ForkJoinPool neighborhoodPool, 
+			Budget budget, Incumbent incumbent, SearchMetrics metrics, RandomStreams streams) {
+		DemandRoutesSolution routes = startPopulation.get(0);
+		incumbent.offer(routes);
+		//the library POP-VND only starts from a single solution
+		boolean workStealing = run.workStealing || startPopulation.size()>1;
+		
+		//Neighborhood Selection
+		IPopulationSelection_V2<DemandRoutesSolution> populationSelection = getPopulationSelection(run.type);
+		if(run.deduplicateNeighbors) {
+			populationSelection = getDeduplicatedPopulationSelection(populationSelection);
+		}
+		populationSelection = getBudgetedPopulationSelection(populationSelection, budget, incumbent, metrics);
+		
+		//FIRST only needs populationSize neighbors over all members, the shared quota changes the descent so only work stealing runs use it
+		NeighborQuota quota = run.workStealing && run.type==Type.FIRST ? new NeighborQuota(run.populationSize) : null;
+
+		//Neighborhoods
+		List<INeighborhood_V2<DemandRoutesSolution>> neghborhoods = orderNeighborhoods(
+				getNeighborhoods_V2(description, run, neighborhoodPool, budget, metrics, quota, streams), run, streams);
+		
+		IOptimizationAlgorithm<DemandRoutesSolution> optimization;
+		if(workStealing) {
+			ForkJoinPool pool = executorService instanceof ForkJoinPool ? (ForkJoinPool) executorService : null;
+			IStartPopulationGenerator<DemandRoutesSolution> startPopulationGenerator = ()->startPopulation;
+			optimization = new WorkStealingPopulationDescent<>(run.populationSize, false, 
+					startPopulationGenerator, neghborhoods, populationSelection, new BestSolutionSelection<>(COMPARATOR), pool, quota);
+		}
+		else {
+			optimization = new ImmuneSystemVariableNeighborhoodDescent_V2<>(run.populationSize, false, 
+					()->routes, neghborhoods, populationSelection, new BestSolutionSelection<>(COMPARATOR), 
+					executorService);
+		}
+
+		DemandRoutesSolution solution = optimization.run();
+		
+		//remove empty routes
+		solution.removeEmptyRoutes();
+		
+		return solution;
+	}
+
+	public static IPopulationSelection_V2<DemandRoutesSolution> getPopulationSelection(Type type) {
+		IPopulationSelection_V2<DemandRoutesSolution> populationSelection = null;
+		switch (type) {
+			case BEST:
+				populationSelection = new BestMSelection<>(COMPARATOR);
+				break;
+			case FIRST:
+				populationSelection = new FirstMSelection<>();
+				break;
+			case RANDOM:
+				populationSelection = new SeededRandomMSelection<>();
+				break;
+			default:
+				break;
+		}
+		return populationSelection;
+	}
+
+	/**
+	 * Selection which ends the population search once the budget is exhausted,
+	 * publishes every member of a new population to the incumbent and counts the population turnover.
+	 */
+	public static IPopulationSelection_V2<DemandRoutesSolution> getBudgetedPopulationSelection(
+			IPopulationSelection_V2<DemandRoutesSolution> populationSelection, Budget budget, Incumbent incumbent,
+			SearchMetrics metrics) {
+		return new IPopulationSelection_V2<DemandRoutesSolution>() {
+			@Override
+			public void select(DemandRoutesSolution[] population, DemandRoutesSolution[] nextPopulation, 
+					List<DemandRoutesSolution> neighbors) {
+				if(budget.isExhausted()) {
+					//an empty next population ends the search
+					Arrays.fill(nextPopulation, null);
+					return;
+				}
+				budget.iterate();
+				populationSelection.select(population, nextPopulation, neighbors);
+				int turnover = 0;
+				for(DemandRoutesSolution solution:nextPopulation) {
+					if(solution!=null) {
+						incumbent.offer(solution);
+						if(!contains(population, solution))
+							turnover++;
+					}
+				}
+				if(metrics!=null)
+					metrics.addIteration(nextPopulation[0]!=null, turnover);
+			}
+		};
+	}
+
+	/**
+	 * Selection which first drops neighbors equal to an earlier neighbor, 
+	 * members of different populations often generate the same one.
+	 */
+	public static IPopulationSelection_V2<DemandRoutesSolution> getDeduplicatedPopulationSelection(
+			IPopulationSelection_V2<DemandRoutesSolution> populationSelection) {
+		return new IPopulationSelection_V2<DemandRoutesSolution>() {
+			@Override
+			public void select(DemandRoutesSolution[] population, DemandRoutesSolution[] nextPopulation, 
+					List<DemandRoutesSolution> neighbors) {
+				Fingerprint.removeDuplicates(neighbors);
+				populationSelection.select(population, nextPopulation, neighbors);
+			}
+		};
+	}
+
+	public static List<INeighborhood_V2<DemandRoutesSolution>> getNeighborhoods_V2(CVRPDescription description, 
+			RunConfiguration run, ForkJoinPool neighborhoodPool) {
+		return getNeighborhoods_V2(description, run, neighborhoodPool, null, null, null, null);
+	}
+
+	/**
+	 * @param quota - neighbors needed per POP-VND iteration over all members (null for no limit)
+	 * @param streams - random streams of the run, member streams are bound while generating a member (null for none)
+	 */
+	public static List<INeighborhood_V2<DemandRoutesSolution>> getNeighborhoods_V2(CVRPDescription description, 
+			RunConfiguration run, ForkJoinPool neighborhoodPool, Budget budget, SearchMetrics metrics, NeighborQuota quota,
+			RandomStreams streams) {
+		NeighborAcceptanceTest<DemandRoutesSolution> neighborAcceptanceTest = new BetterThanBestInPopulation<DemandRoutesSolution>(COMPARATOR);
+			
+		NeighborhoodMaintenance<DemandRoutesSolution> neighborhoodMaintenance = null;
+		switch (run.type) {
+			case BEST:
+				neighborhoodMaintenance = new BestMMaintenance<>(run.populationSize, COMPARATOR);
+				break;
+			case FIRST:
+				neighborhoodMaintenance = new FirstMMaintenance<>(run.populationSize);
+				break;
+			case RANDOM:
+				neighborhoodMaintenance = new SeededRandomMMaintenance<>(run.populationSize);
+				break;
+			default:
+				break;
+		}
+		CandidateLists candidateLists = getCandidateLists(description, run);
+		RouteCache cache = newRouteCache(description, run);
+		
+		AbstractDeltaNeighborhood_V2 neighborhood1 = new DeltaMergeRoutes_V2(description, neighborAcceptanceTest, neighborhoodMaintenance, neighborhoodPool, null, budget, metrics);
+		
+		AbstractDeltaNeighborhood_V2 neighborhood2 = new DeltaChangeStationRoute_V2(description, neighborAcceptanceTest, neighborhoodMaintenance, neighborhoodPool, candidateLists, budget, metrics);
+
+		AbstractDeltaNeighborhood_V2 neighborhood3 = new DeltaSwapStations_V2(description, neighborAcceptanceTest, neighborhoodMaintenance, neighborhoodPool, candidateLists, budget, metrics);
+
+		//every neighborhood remembers the members it already generated the neighborhood of
+		for(AbstractDeltaNeighborhood_V2 neighborhood:Arrays.asList(neighborhood1,neighborhood2,neighborhood3)) {
+			neighborhood.setFingerprinting(run.deduplicateNeighbors, 
+					run.visitedSetSize>0 ? new FingerprintSet(run.visitedSetSize) : null);
+			neighborhood.setQuota(quota);
+			neighborhood.setRandomStreams(streams);
+			neighborhood.setRouteCache(cache);
+			if(run.pairMemorySize>0) {
+				neighborhood.setPairMemory(new PairMemory(run.pairMemorySize));
+			}
+		}
+
+		return Arrays.asList(
+				neighborhood1,neighborhood2,neighborhood3
+		);
+	}
+
+	private static boolean contains(DemandRoutesSolution[] population, DemandRoutesSolution solution) {
+		for(DemandRoutesSolution member:population) {
+			if(member==solution)
+				return true;
+		}
+		return false;
+	}
+
+}
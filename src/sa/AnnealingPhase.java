@@ -0,0 +1,153 @@
+package sa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import common.anytime.Budget;
+import common.anytime.Incumbent;
+import common.fingerprint.Fingerprint;
+import common.metrics.SearchMetrics;
+import common.random.RandomStreams;
+import heuristic.annealing.schedule.GeometricTempSchhedule;
+import heuristic.annealing.schedule.ITempSchedule;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+import utility.DirectExecutorService;
+
+/**
+ * Short simulated annealing phase producing the start population of a population search. </br>
+ * Every chain is an {@link InPlaceAnnealing} from the same start solution with its own random stream and a fast
+ * geometric schedule. A chain hands off as soon as it stagnates (its best solution did not improve for the
+ * stagnation steps), its schedule ends, the phase time is used up or the run budget is exhausted. </br>
+ * The best solution of every chain is returned, duplicates removed and ordered by length, so the population
+ * starts from several good and different solutions. Phase steps are not counted as iterations of the run budget.
+ */
+public final class AnnealingPhase {
+
+	private static final double REPETITION_CHANCE = 0.05;
+	private static final double MIN_TEMPERATURE = 1e-3;
+	private static final int BUDGET_CHECK_INTERVAL = 1024; //steps between two budget and deadline checks
+
+	private final CVRPDescription description;
+	private final int chainCount;
+	private final ExecutorService executorService;
+
+	private double initialTemperature = 10;
+	private double alpha = 0.95;
+	private int innerLimit = 1000;
+	private int outerLimit = 1_000_000;
+	private long stagnationSteps = 20_000;
+
+	/**
+	 * @param executorService - executes the chains, a DirectExecutorService runs them one after the other
+	 * 		and gives every chain an equal part of the phase time
+	 */
+	public AnnealingPhase(CVRPDescription description, int chainCount, ExecutorService executorService) {
+		if(chainCount<1)
+			throw new IllegalArgumentException("At least one chain is needed");
+		this.description = description;
+		this.chainCount = chainCount;
+		this.executorService = executorService;
+	}
+
+	/**
+	 * Sets the geometric schedule of every chain (see GeometricTempSchhedule).
+	 */
+	public AnnealingPhase setSchedule(double initialTemperature, double alpha, int innerLimit, int outerLimit) {
+		this.initialTemperature = initialTemperature;
+		this.alpha = alpha;
+		this.innerLimit = innerLimit;
+		this.outerLimit = outerLimit;
+		return this;
+	}
+
+	/**
+	 * Sets the number of steps without a new best solution after which a chain hands off.
+	 */
+	public AnnealingPhase setStagnation(long stagnationSteps) {
+		this.stagnationSteps = stagnationSteps;
+		return this;
+	}
+
+	/**
+	 * Anneals all chains from the start solution and returns their distinct best solutions, shortest first. </br>
+	 * Every improvement is published to the incumbent and the evaluated moves are added to the metrics (null to not collect them).
+	 * @param phaseMillis - time the phase may take (0 for no limit besides the budget)
+	 */
+	public List<DemandRoutesSolution> run(DemandRoutesSolution startSolution, long phaseMillis, Budget budget,
+			Incumbent incumbent, SearchMetrics metrics, RandomStreams streams) {
+		incumbent.offer(startSolution);
+
+		boolean sequential = executorService instanceof DirectExecutorService;
+		long chainMillis = phaseMillis>0 && sequential ? Math.max(1, phaseMillis/chainCount) : phaseMillis;
+		long phaseStart = System.nanoTime();
+
+		List<Future<DemandRoutesSolution>> futures = new ArrayList<>(chainCount);
+		for(int i=0; i<chainCount; i++) {
+			Random stream = streams.newChainStream(i);
+			InPlaceAnnealing chain = new InPlaceAnnealing(description, stream, REPETITION_CHANCE,
+					startSolution.clone(), incumbent);
+			futures.add(executorService.submit(() -> {
+				Random previous = RandomStreams.bind(stream);
+				try {
+					//sequential chains start their part of the phase when they start
+					long start = sequential ? System.nanoTime() : phaseStart;
+					DemandRoutesSolution best = anneal(chain, chainMillis>0 ? start+chainMillis*1_000_000 : Long.MAX_VALUE, budget);
+					if(metrics!=null)
+						chain.drainTo(metrics);
+					return best;
+				}
+				finally {
+					RandomStreams.bind(previous);
+				}
+			}));
+		}
+
+		List<DemandRoutesSolution> elites = new ArrayList<>(chainCount);
+		try {
+			for(Future<DemandRoutesSolution> future:futures) {
+				elites.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+
+		Collections.sort(elites, (s1,s2)->Double.compare(s1.length, s2.length));
+		Fingerprint.removeDuplicates(elites);
+		return elites;
+	}
+
+	/**
+	 * Runs one chain until it stagnates, its schedule ends, the deadline passes or the budget is exhausted
+	 * and returns its best solution.
+	 */
+	private DemandRoutesSolution anneal(InPlaceAnnealing chain, long deadline, Budget budget) {
+		ITempSchedule tempSchedule = new GeometricTempSchhedule(initialTemperature, alpha, innerLimit, outerLimit);
+		DemandRoutesSolution best = chain.getSolution().clone();
+		long lastImprovement = 0;
+		long step = 0;
+		double temperature;
+		while((temperature = tempSchedule.getNextTemperature())>=MIN_TEMPERATURE) {
+			step++;
+			if(chain.step(temperature) && chain.getValue()<best.length) {
+				best = chain.getSolution().clone();
+				lastImprovement = step;
+			}
+			else if(step-lastImprovement>=stagnationSteps) {
+				break;
+			}
+			if(step%BUDGET_CHECK_INTERVAL==0 && (budget.isExhausted() || System.nanoTime()-deadline>=0))
+				break;
+		}
+		best.removeEmptyRoutes();
+		return best;
+	}
+}
@@ -0,0 +1,128 @@
+package sa;
+
+import java.util.Random;
+
+import common.RouteCache;
+import common.anytime.Budget;
+import common.anytime.Incumbent;
+import common.metrics.SearchMetrics;
+import common.neighborhood.MoveLog;
+import common.neighborhood.RandomMove;
+import heuristic.annealing.schedule.ITempSchedule;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * Simulated annealing on a single solution. </br>
+ * Moves are evaluated without changing the solution (see {@link RandomMove}) and only an accepted move
+ * writes its two routes. With probability repetitionChance further moves are chained onto a step,
+ * as RepeatNeighborhood does; they are applied through a {@link MoveLog} and undone if the step is rejected.
+ * There is no second solution buffer to keep in sync.
+ */
+public final class InPlaceAnnealing {
+
+	private static final double MIN_TEMPERATURE = 1e-3;
+
+	private final Random random;
+	private final RandomMove move;
+	private final MoveLog log = new MoveLog();
+	private final double repetitionChance;
+	private final Incumbent incumbent;
+	private DemandRoutesSolution solution;
+
+	/**
+	 * @param solution - changed in place by the annealing
+	 */
+	public InPlaceAnnealing(CVRPDescription description, Random random, double repetitionChance,
+			DemandRoutesSolution solution, Incumbent incumbent) {
+		this(description, random, repetitionChance, solution, incumbent, null);
+	}
+
+	/**
+	 * @param solution - changed in place by the annealing
+	 * @param cache - solved routes of the run (null to solve every changed route)
+	 */
+	public InPlaceAnnealing(CVRPDescription description, Random random, double repetitionChance,
+			DemandRoutesSolution solution, Incumbent incumbent, RouteCache cache) {
+		this.random = random;
+		this.move = new RandomMove(description, random, cache);
+		this.repetitionChance = repetitionChance;
+		this.incumbent = incumbent;
+		this.solution = solution;
+	}
+
+	/**
+	 * Runs the annealing with the given schedule, same as SimulatedAnnealing.
+	 */
+	public void anneal(ITempSchedule tempSchedule) {
+		double temperature;
+		while((temperature = tempSchedule.getNextTemperature())>=MIN_TEMPERATURE) {
+			step(temperature);
+		}
+	}
+
+	/**
+	 * Makes the given number of steps at a fixed temperature, each counted as an iteration of the budget.
+	 */
+	public void sample(double temperature, int steps, Budget budget) {
+		for(int i=0; i<steps && !budget.isExhausted(); i++) {
+			budget.iterate();
+			step(temperature);
+		}
+	}
+
+	/**
+	 * One Metropolis step. </br>
+	 * Returns true if the solution changed.
+	 */
+	public boolean step(double temperature) {
+		double change = 0;
+		boolean evaluated;
+		while(true) {
+			evaluated = move.next(solution);
+			if(evaluated)
+				change += move.getDelta();
+			if(random.nextDouble()>=repetitionChance)
+				break;
+			if(evaluated)
+				move.apply(solution, log);
+		}
+
+		if(change<=0 || random.nextDouble()<=Math.exp(-change/temperature)) {
+			if(evaluated)
+				move.apply(solution, null);
+			boolean changed = evaluated || !log.isEmpty();
+			log.clear();
+			if(changed && solution.length<incumbent.getLength())
+				incumbent.offer(solution);
+			return changed;
+		}
+
+		log.undo(solution);
+		return false;
+	}
+
+	/**
+	 * Adds the counts of the moves evaluated since the last drain to the metrics.
+	 */
+	public void drainTo(SearchMetrics metrics) {
+		move.drainTo(metrics);
+	}
+
+	public DemandRoutesSolution getSolution() {
+		return solution;
+	}
+
+	public double getValue() {
+		return solution.length;
+	}
+
+	/**
+	 * Swaps the solutions of both annealers, each keeps its own random stream and move buffers.
+	 */
+	public void exchange(InPlaceAnnealing other) {
+		DemandRoutesSolution help = solution;
+		solution = other.solution;
+		other.solution = help;
+	}
+}
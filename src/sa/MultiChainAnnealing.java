@@ -0,0 +1,194 @@
+package sa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import common.RouteCache;
+import common.anytime.Budget;
+import common.anytime.BudgetedTempSchedule;
+import common.anytime.Incumbent;
+import common.random.RandomStreams;
+import heuristic.annealing.schedule.GeometricTempSchhedule;
+import heuristic.routing.cvrp.CVRPDescription;
+import heuristic.routing.cvrp.DemandRoutesSolution;
+
+/**
+ * Simulated annealing with several chains running on separate threads. </br>
+ * {@link Mode#PARALLEL_TEMPERING} keeps every chain at a fixed temperature of a geometric ladder and
+ * after every exchange interval tries to swap the solutions of neighboring temperatures,
+ * {@link Mode#MULTI_START} anneals every chain independently with its own schedule. </br>
+ * Every chain is an {@link InPlaceAnnealing} with its own random number stream and move buffers.
+ * It draws the moves of SwapStationsNG, ChangeStationRouteNG and MergeRouteNG through {@link common.neighborhood.RandomMove}
+ * instead of using the library generators, which re-optimize routes with a solver choice shared by all chains
+ * (see {@link common.neighborhood.SwapStationsGenerator}). </br>
+ * The chains use the chain streams of the run and the exchanges its run stream (see {@link RandomStreams}).
+ * The best solution of all chains is kept by the {@link Incumbent}.
+ */
+public final class MultiChainAnnealing {
+
+	public static enum Mode{
+		PARALLEL_TEMPERING, MULTI_START;
+	}
+
+	private static final double REPETITION_CHANCE = 0.05;
+
+	private final CVRPDescription description;
+	private final Mode mode;
+	private final int chainCount;
+	private final ExecutorService executorService;
+	private RouteCache cache = null;
+
+	//Parallel tempering
+	private double minTemperature = 0.01;
+	private double maxTemperature = 10;
+	private int exchangeInterval = 1000;
+	private long chainSteps = 1_000_000;
+
+	//Multi start
+	private double initialTemperature = 10;
+	private double alpha = 0.99;
+	private int innerLimit = 1000;
+	private int outerLimit = 1_000_000;
+
+	/**
+	 * @param executorService - executes the chains, should have at least chainCount threads
+	 */
+	public MultiChainAnnealing(CVRPDescription description, Mode mode, int chainCount, ExecutorService executorService) {
+		if(chainCount<1)
+			throw new IllegalArgumentException("At least one chain is needed");
+		this.description = description;
+		this.mode = mode;
+		this.chainCount = chainCount;
+		this.executorService = executorService;
+	}
+
+	/**
+	 * Sets the temperature ladder of parallel tempering, the number of steps between exchanges
+	 * and the number of steps every chain makes if the budget does not end the search earlier.
+	 */
+	public MultiChainAnnealing setTempering(double minTemperature, double maxTemperature, int exchangeInterval, long chainSteps) {
+		this.minTemperature = minTemperature;
+		this.maxTemperature = maxTemperature;
+		this.exchangeInterval = exchangeInterval;
+		this.chainSteps = chainSteps;
+		return this;
+	}
+
+	/**
+	 * Sets the geometric schedule every chain uses in multi start mode (see GeometricTempSchhedule).
+	 */
+	public MultiChainAnnealing setSchedule(double initialTemperature, double alpha, int innerLimit, int outerLimit) {
+		this.initialTemperature = initialTemperature;
+		this.alpha = alpha;
+		this.innerLimit = innerLimit;
+		this.outerLimit = outerLimit;
+		return this;
+	}
+
+	/**
+	 * Sets the cache of solved routes shared by all chains (null to solve every changed route).
+	 */
+	public MultiChainAnnealing setRouteCache(RouteCache cache) {
+		this.cache = cache;
+		return this;
+	}
+
+	/**
+	 * Runs all chains from the given start solution until they end or the budget is exhausted
+	 * and returns the best solution found.
+	 * @param streams - random streams of the run, every chain anneals with its chain stream
+	 */
+	public DemandRoutesSolution run(DemandRoutesSolution startSolution, Budget budget, Incumbent incumbent, 
+			RandomStreams streams) {
+		incumbent.offer(startSolution);
+
+		List<InPlaceAnnealing> chains = new ArrayList<>(chainCount);
+		List<Random> chainStreams = new ArrayList<>(chainCount);
+		for(int i=0; i<chainCount; i++) {
+			Random stream = streams.newChainStream(i);
+			chainStreams.add(stream);
+			chains.add(new InPlaceAnnealing(description, stream, REPETITION_CHANCE, startSolution.clone(), incumbent, cache));
+		}
+
+		if(mode==Mode.PARALLEL_TEMPERING) {
+			temper(chains, chainStreams, budget, streams.getRunStream());
+		}
+		else {
+			List<Runnable> tasks = new ArrayList<>(chainCount);
+			for(int i=0; i<chainCount; i++) {
+				InPlaceAnnealing chain = chains.get(i);
+				tasks.add(bound(chainStreams.get(i), () -> chain.anneal(new BudgetedTempSchedule(
+						new GeometricTempSchhedule(initialTemperature, alpha, innerLimit, outerLimit), budget))));
+			}
+			invokeAll(tasks);
+		}
+
+		return incumbent.get();
+	}
+
+	private void temper(List<InPlaceAnnealing> chains, List<Random> streams, Budget budget, Random random) {
+		double[] temperatures = new double[chainCount];
+		for(int i=0; i<chainCount; i++) {
+			temperatures[i] = chainCount==1 ? minTemperature :
+				minTemperature*Math.pow(maxTemperature/minTemperature, i/(double)(chainCount-1));
+		}
+
+		List<Runnable> tasks = new ArrayList<>(chainCount);
+		for(int i=0; i<chainCount; i++) {
+			InPlaceAnnealing chain = chains.get(i);
+			double temperature = temperatures[i];
+			tasks.add(bound(streams.get(i), () -> chain.sample(temperature, exchangeInterval, budget)));
+		}
+
+		long rounds = (chainSteps+exchangeInterval-1)/exchangeInterval;
+		for(long round=0; round<rounds && !budget.isExhausted(); round++) {
+			invokeAll(tasks);
+
+			//Exchange between neighboring temperatures, alternating the pairs every round
+			for(int i=(int)(round&1); i+1<chainCount; i+=2) {
+				InPlaceAnnealing colder = chains.get(i);
+				InPlaceAnnealing hotter = chains.get(i+1);
+				double exponent = (colder.getValue()-hotter.getValue())*(1/temperatures[i]-1/temperatures[i+1]);
+				if(exponent>=0 || random.nextDouble()<=Math.exp(exponent)) {
+					colder.exchange(hotter);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the task with the chain's stream bound to the executing thread, so its route optimizations draw from it.
+	 */
+	private static Runnable bound(Random stream, Runnable task) {
+		return () -> {
+			Random previous = RandomStreams.bind(stream);
+			try {
+				task.run();
+			}
+			finally {
+				RandomStreams.bind(previous);
+			}
+		};
+	}
+
+	private void invokeAll(List<Runnable> tasks) {
+		List<Future<?>> futures = new ArrayList<>(tasks.size());
+		for(Runnable task:tasks) {
+			futures.add(executorService.submit(task));
+		}
+		try {
+			for(Future<?> future:futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+}
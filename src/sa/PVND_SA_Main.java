@@ -8,51 +8,103 @@ import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
 import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 
+import common.InstanceCache;
+import common.RouteCache;
+import common.RouteOptimizer;
 import common.StartSolution;
+import common.anytime.Budget;
+import common.anytime.BudgetedTempSchedule;
+import common.anytime.Incumbent;
+import common.construction.Construction;
+import common.metrics.SearchMetrics;
+import common.neighborhood.ChangeStationRouteGenerator;
+import common.neighborhood.MergeRoutesGenerator;
+import common.neighborhood.SwapStationsGenerator;
+import common.random.RandomStreams;
 import heuristic.annealing.SimulatedAnnealing;
 import heuristic.annealing.schedule.GeometricTempSchhedule;
 import heuristic.annealing.schedule.ITempSchedule;
 import heuristic.routing.cvrp.CVRPDescription;
 import heuristic.routing.cvrp.DemandRoutesSolution;
-import heuristic.routing.cvrp.neighborhoodGenerators.ChangeStationRouteNG;
-import heuristic.routing.cvrp.neighborhoodGenerators.MergeRouteNG;
-import heuristic.routing.cvrp.neighborhoodGenerators.SwapStationsNG;
 import optimization.algorithm.IOptimizationAlgorithm;
 import optimization.decoder.IDecoder;
 import optimization.decoder.PassThroughDecoder;
 import optimization.solution.neighborhood.CompositeNeighborhood;
 import optimization.solution.neighborhood.RepeatNeighborhood;
-import utilities.random.RNGProvider;
+import sa.MultiChainAnnealing.Mode;
+import utilities.executor.ExecutorServiceProvider;
 import utility.Utilities;
 
 public class PVND_SA_Main {
 	
 	private static final boolean SAVE_RESULT = true;
 	private static final int REPETITION_COUNT = 1;
+	private static final int ROUTE_CACHE_SIZE = 200_000; //routes solved by a run are reused within the run, 0 disables the route cache
+	private static final double ROUTE_REPAIR_FALLBACK = 0; //changed routes are repaired and solved again if longer than this ratio of the route before the move, 0 always solves them
+	public static final Construction CONSTRUCTION = Construction.SINGLETON; //start solution of every run
+	private static final long TIME_LIMIT_MILLIS = 0; //anytime mode: best solution after the given time, 0 for no limit
+	private static final long ITERATION_LIMIT = 0; //anytime mode: best solution after the given iterations, 0 for no limit
+	private static final String BINARY_INSTANCE_DIRECTORY = "output/instances/"; //binary instances with the stored distances, null only parses the .vrp files
+	private static final int CHAIN_COUNT = 1; //annealing chains on separate threads, 1 runs the single chain SimulatedAnnealing
+	private static final Mode CHAIN_MODE = Mode.PARALLEL_TEMPERING; //how chains cooperate when CHAIN_COUNT>1
+	private static final boolean IN_PLACE_MOVES = true; //evaluate moves before applying them to a single solution, false uses the neighbor generators
+	private static final long SEED = 0; //master seed the run seeds are derived from, 0 draws one at start
 	
 	public static void main(String[] args) throws FileNotFoundException, IOException {
-		for(int i=0; i<REPETITION_COUNT; i++) {
-			for (String name : Files.list(Paths.get("data/")).map(p -> p.toFile().getName().replaceAll(".vrp", ""))
-					.filter(n -> !n.endsWith(".opt")).collect(Collectors.toList())) {
-				runInstance(name);
+		RouteOptimizer.setRepair(ROUTE_REPAIR_FALLBACK);
+		if(BINARY_INSTANCE_DIRECTORY!=null) {
+			InstanceCache.setBinaryDirectory(Paths.get(BINARY_INSTANCE_DIRECTORY));
+		}
+		long masterSeed = SEED!=0 ? SEED : RandomStreams.newSeed();
+		System.out.println("Master seed: "+masterSeed);
+		ExecutorService executorService = CHAIN_COUNT>1 ? ExecutorServiceProvider.getNewExecutorService(CHAIN_COUNT) : null;
+		try {
+			for(int i=0; i<REPETITION_COUNT; i++) {
+				for (String name : Files.list(Paths.get("data/")).map(p -> p.toFile().getName().replaceAll(".vrp", ""))
+						.filter(n -> !n.endsWith(".opt")).collect(Collectors.toList())) {
+					runInstance(name, executorService, RandomStreams.derive(masterSeed, (name+"/"+i).hashCode()));
+				}
+			}
+		}
+		finally {
+			if(executorService!=null) {
+				executorService.shutdown();
 			}
 		}
 	}
 	
-	private static void runInstance(String name) throws IOException, FileNotFoundException {
+	private static void runInstance(String name, ExecutorService executorService, long seed) throws IOException, FileNotFoundException {
 		String inFileName = "data/"+name+".vrp";
 		
 		// Get problem description
-		CVRPDescription description = CVRPDescription.getDescription(inFileName);
+		CVRPDescription description = InstanceCache.getDescription(inFileName);
 
 		
 		//Start measuring time
 		long startTime = System.nanoTime();
 		
-		DemandRoutesSolution routes = solve(description);
+		Budget budget = new Budget(TIME_LIMIT_MILLIS, ITERATION_LIMIT);
+		DemandRoutesSolution routes;
+		if(executorService==null) {
+			routes = solve(description, budget, new Incumbent(), seed);
+		}
+		else {
+			RandomStreams.install();
+			RandomStreams streams = new RandomStreams(seed, 0);
+			Random previous = RandomStreams.bind(streams.getRunStream());
+			try {
+				routes = new MultiChainAnnealing(description, CHAIN_MODE, CHAIN_COUNT, executorService)
+						.setRouteCache(newRouteCache(description))
+						.run(StartSolution.getInitialSolution(description, CONSTRUCTION), budget, new Incumbent(), streams);
+			}
+			finally {
+				RandomStreams.bind(previous);
+			}
+		}
 		routes.removeEmptyRoutes();
 		
 		//Stop measuring time
@@ -67,50 +119,103 @@ public class PVND_SA_Main {
 
 		//save result
 		if(SAVE_RESULT) {
-			String outFileName = "output/sa/"+name+".txt";
+			String outFileName = "output/sa/"+(CONSTRUCTION!=Construction.SINGLETON ? "start_"+CONSTRUCTION+"/" : "")
+					+(CHAIN_COUNT>1 ? "chains_"+CHAIN_COUNT+"_"+CHAIN_MODE+"/" : "")+name+".txt";
 			File outputFile = new File(outFileName);
 			if(!outputFile.exists()) {
 				outputFile.getParentFile().mkdirs();
 				outputFile.createNewFile();
 			}
-			String line = time+","+length+"\n";
+			String line = time+","+length+","+seed+"\n";
 			Files.write(outputFile.toPath(), line.getBytes(), StandardOpenOption.APPEND);
 		}
 
 	}
 
-	private static DemandRoutesSolution solve(CVRPDescription description) {
+	public static DemandRoutesSolution solve(CVRPDescription description, Budget budget, Incumbent incumbent) {
+		return solve(description, budget, incumbent, RandomStreams.newSeed());
+	}
+
+	/**
+	 * Anneals until the schedule ends or the budget is exhausted and returns the best solution seen. </br>
+	 * Every improvement is published to the incumbent. </br>
+	 * The moves, the acceptance and the route optimizations draw from the run stream of the seed, 
+	 * bound to the calling thread while annealing.
+	 */
+	public static DemandRoutesSolution solve(CVRPDescription description, Budget budget, Incumbent incumbent, long seed) {
+		return solve(StartSolution.getInitialSolution(description, CONSTRUCTION), description, budget, incumbent, seed, null);
+	}
+
+	/**
+	 * Same as {@link #solve(CVRPDescription, Budget, Incumbent, long)} from the given start solution,
+	 * which is annealed in place. </br>
+	 * Every evaluated move is counted as a candidate of the metrics (null to not collect them).
+	 */
+	public static DemandRoutesSolution solve(DemandRoutesSolution startSolution, CVRPDescription description, Budget budget, 
+			Incumbent incumbent, long seed, SearchMetrics metrics) {
+		RandomStreams.install();
+		Random random = new RandomStreams(seed, 0).getRunStream();
+		Random previous = RandomStreams.bind(random);
+		try {
+			return solve(startSolution, description, budget, incumbent, random, newRouteCache(description), metrics);
+		}
+		finally {
+			RandomStreams.bind(previous);
+		}
+	}
+
+	private static RouteCache newRouteCache(CVRPDescription description) {
+		return ROUTE_CACHE_SIZE>0 ? new RouteCache(description, ROUTE_CACHE_SIZE) : null;
+	}
+
+	private static DemandRoutesSolution solve(DemandRoutesSolution startSolution, CVRPDescription description, Budget budget, 
+			Incumbent incumbent, Random random, RouteCache cache, SearchMetrics metrics) {
+		double repetitionChance = 0.05;
+		
+		//Start solution
+		incumbent.offer(startSolution);
+		
+		//Temperature schedule
+		ITempSchedule tempSchedule = new BudgetedTempSchedule(new GeometricTempSchhedule(10, 0.99, 1000, 1_000_000), budget);
+		
+		if(IN_PLACE_MOVES) {
+			InPlaceAnnealing annealing = new InPlaceAnnealing(description, random, repetitionChance, startSolution, incumbent, cache);
+			annealing.anneal(tempSchedule);
+			if(metrics!=null)
+				annealing.drainTo(metrics);
+			return incumbent.get();
+		}
 		
 		//Decoder
 		IDecoder<DemandRoutesSolution, DemandRoutesSolution> decoder = new PassThroughDecoder<>();
 		
 		//Neighborhood
-		Random random = RNGProvider.getRandom();		
 		CompositeNeighborhood<DemandRoutesSolution> compositeNeighborhood = new CompositeNeighborhood<>(Arrays.asList(
-				new SwapStationsNG(random, description)
-				,new ChangeStationRouteNG(random, description)
-				,new MergeRouteNG(description, random)
+				new SwapStationsGenerator(random, description)
+				,new ChangeStationRouteGenerator(random, description)
+				,new MergeRoutesGenerator(random, description)
 				));
-		double repetitionChance = 0.05;
 		RepeatNeighborhood<DemandRoutesSolution> neighborhood = new RepeatNeighborhood<>(repetitionChance ,
 				compositeNeighborhood);
 		
-		//Start solution
-		DemandRoutesSolution startSolution = StartSolution.getInitialSolution(description);
-
-		
 		//Function
-		ToDoubleFunction<DemandRoutesSolution> function = drs -> drs.length;
-		
-		//Temperature schedule
-		ITempSchedule tempSchedule = new GeometricTempSchhedule(10, 0.99, 1000, 1_000_000);
+		long[] evaluations = new long[1];
+		ToDoubleFunction<DemandRoutesSolution> function = drs -> {
+			evaluations[0]++;
+			if(drs.length<incumbent.getLength())
+				incumbent.offer(drs);
+			return drs.length;
+		};
 				
 		//Optimization algorithm
 		IOptimizationAlgorithm<DemandRoutesSolution> optimizationAlgorithm = 
 				new SimulatedAnnealing<DemandRoutesSolution,DemandRoutesSolution>(decoder, neighborhood, startSolution, function, tempSchedule);
 				
 		
-		return optimizationAlgorithm.run();
+		optimizationAlgorithm.run();
+		if(metrics!=null)
+			metrics.addEnumeration(evaluations[0], 0, 0, 0);
+		return incumbent.get();
 	}
 
 	
@@ -0,0 +1,46 @@
+package utility;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes every submitted task on the submitting thread. </br>
+ * Lets algorithms expecting an executor run single threaded inside an already parallel caller.
+ */
+public class DirectExecutorService extends AbstractExecutorService {
+
+	private volatile boolean shutdown = false;
+
+	@Override
+	public void execute(Runnable command) {
+		command.run();
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown = true;
+		return Collections.emptyList();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return shutdown;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) {
+		return true;
+	}
+}
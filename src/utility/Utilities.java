@@ -2,6 +2,7 @@ package utility;
 
 import java.io.PrintStream;
 
+import common.FlatSolution;
 import heuristic.routing.cvrp.DemandRoutesSolution;
 
 public class Utilities {
@@ -15,5 +16,13 @@ public class Utilities {
 		output.println();
 	}
 
+	public static void presentSolution(PrintStream output, FlatSolution routes,double time, double length) {
+		//
+		output.println(routes);
+		output.println("Time: " + time+" ms");
+		output.println("Length: " + length);
+		output.println();
+	}
+
 
 }